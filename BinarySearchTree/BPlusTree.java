@@ -0,0 +1,481 @@
+/** A B+ tree is a search tree in which every node holds many keys in a
+ * sorted array instead of one. With order m a node has up to m keys, so a
+ * tree of n elements is only about log_{m/2}(n) levels deep and a search
+ * touches a handful of nodes, each searched with a binary search over one
+ * contiguous array. All elements live in the leaves; the internal nodes only
+ * hold separator keys that guide the search. The leaves are chained left to
+ * right, so in-order and range scans simply walk along the leaf arrays.
+ *
+ * Every node except the root keeps between m / 2 and m keys. An insert that
+ * overflows a node splits it in two and pushes a separator up to the parent;
+ * a delete that underflows a node borrows a key from a sibling, or merges
+ * with it when the sibling has none to spare.
+ */
+package BinarySearchTree;
+
+public class BPlusTree<E extends Comparable<E>> implements Iterable<E> {
+
+    // Default maximum number of keys in a node
+    private static int DEFAULT_ORDER = 64;
+
+    private final int order; // Maximum number of keys in a node
+    private final int minKeys; // Minimum number of keys in every node but the root
+
+    protected Node<E> root;
+    protected int size = 0;
+
+    /** Create an empty B+ tree with the default order */
+    public BPlusTree() {
+        this(DEFAULT_ORDER);
+    }
+
+    /** Create an empty B+ tree whose nodes hold at most order keys */
+    public BPlusTree(int order) {
+        if (order < 3)
+            throw new IllegalArgumentException("Order must be at least 3: " + order);
+
+        this.order = order;
+        this.minKeys = order / 2;
+        root = new LeafNode<E>(order);
+    }
+
+    /** Create a B+ tree with the default order from an array of objects */
+    public BPlusTree(E[] objects) {
+        this();
+        for (int i = 0; i < objects.length; i++) {
+            insert(objects[i]);
+        }
+    }
+
+    /** Return true if the element is in the tree */
+    public boolean search(E e) {
+        return findLeaf(e).search(e) >= 0;
+    }
+
+    /** Return the leaf whose range contains e */
+    private LeafNode<E> findLeaf(E e) {
+        Node<E> current = root;
+        while (current instanceof InternalNode) {
+            InternalNode<E> node = (InternalNode<E>) current;
+            current = node.children[node.childIndex(e)];
+        }
+        return (LeafNode<E>) current;
+    }
+
+    /** Insert element e into the tree.
+     * Return true if the element is inserted successfully */
+    public boolean insert(E e) {
+        int oldSize = size;
+        Split<E> split = insert(root, e);
+        if (split != null) {
+            // The root was split, so the tree grows by one level
+            InternalNode<E> newRoot = new InternalNode<E>(order);
+            newRoot.keys[0] = split.separator;
+            newRoot.children[0] = root;
+            newRoot.children[1] = split.right;
+            newRoot.n = 1;
+            root = newRoot;
+        }
+        return size > oldSize;
+    }
+
+    /** Insert e into the subtree rooted at node. If node overflows it is
+     * split, and the new right half is returned with its separator */
+    private Split<E> insert(Node<E> node, E e) {
+        int i = node.search(e);
+        if (node instanceof LeafNode) {
+            if (i >= 0)
+                return null; // Duplicate element not inserted
+
+            node.insertKeyAt(-i - 1, e);
+            size++;
+            return node.n > order ? splitLeaf((LeafNode<E>) node) : null;
+        }
+
+        InternalNode<E> parent = (InternalNode<E>) node;
+        int c = i >= 0 ? i + 1 : -i - 1;
+        Split<E> split = insert(parent.children[c], e);
+        if (split == null)
+            return null;
+
+        parent.insertAt(c, split.separator, split.right);
+        return parent.n > order ? splitInternal(parent) : null;
+    }
+
+    /** Move the upper half of an overflowing leaf into a new leaf */
+    private Split<E> splitLeaf(LeafNode<E> leaf) {
+        LeafNode<E> right = new LeafNode<E>(order);
+        int half = leaf.n / 2;
+        right.n = leaf.n - half;
+        System.arraycopy(leaf.keys, half, right.keys, 0, right.n);
+        java.util.Arrays.fill(leaf.keys, half, leaf.n, null);
+        leaf.n = half;
+
+        right.next = leaf.next; // Keep the leaves chained
+        leaf.next = right;
+        return new Split<E>(right.keys[0], right); // A copy of the first key goes up
+    }
+
+    /** Move the upper half of an overflowing internal node into a new node */
+    private Split<E> splitInternal(InternalNode<E> node) {
+        InternalNode<E> right = new InternalNode<E>(order);
+        int mid = node.n / 2;
+        right.n = node.n - mid - 1;
+        System.arraycopy(node.keys, mid + 1, right.keys, 0, right.n);
+        System.arraycopy(node.children, mid + 1, right.children, 0, right.n + 1);
+
+        E separator = node.keys[mid]; // The middle key moves up
+        java.util.Arrays.fill(node.keys, mid, node.n, null);
+        java.util.Arrays.fill(node.children, mid + 1, node.n + 1, null);
+        node.n = mid;
+        return new Split<E>(separator, right);
+    }
+
+    /** Delete an element from the tree.
+     * Return true if the element is deleted successfully.
+     * Return false if the element is not in the tree */
+    public boolean delete(E e) {
+        if (!delete(root, e))
+            return false;
+
+        if (root instanceof InternalNode && root.n == 0) {
+            // The root lost its last separator, so the tree shrinks by one level
+            root = ((InternalNode<E>) root).children[0];
+        }
+        size--;
+        return true;
+    }
+
+    /** Delete e from the subtree rooted at node and repair the child it
+     * was deleted from if that child now has too few keys */
+    private boolean delete(Node<E> node, E e) {
+        int i = node.search(e);
+        if (node instanceof LeafNode) {
+            if (i < 0)
+                return false; // Element is not in the tree
+
+            node.removeKeyAt(i);
+            return true;
+        }
+
+        InternalNode<E> parent = (InternalNode<E>) node;
+        int c = i >= 0 ? i + 1 : -i - 1;
+        if (!delete(parent.children[c], e))
+            return false;
+
+        if (parent.children[c].n < minKeys) {
+            if (c > 0 && parent.children[c - 1].n > minKeys)
+                borrowFromLeft(parent, c);
+            else if (c < parent.n && parent.children[c + 1].n > minKeys)
+                borrowFromRight(parent, c);
+            else if (c > 0)
+                merge(parent, c - 1);
+            else
+                merge(parent, c);
+        }
+        return true;
+    }
+
+    /** Move the last key of child c - 1 into child c */
+    private void borrowFromLeft(InternalNode<E> parent, int c) {
+        Node<E> left = parent.children[c - 1];
+        Node<E> child = parent.children[c];
+
+        if (child instanceof LeafNode) {
+            child.insertKeyAt(0, left.keys[left.n - 1]);
+            left.removeKeyAt(left.n - 1);
+            parent.keys[c - 1] = child.keys[0];
+        }
+        else {
+            // The separator comes down and the left node's last key goes up
+            InternalNode<E> leftNode = (InternalNode<E>) left;
+            InternalNode<E> childNode = (InternalNode<E>) child;
+            System.arraycopy(childNode.children, 0, childNode.children, 1, childNode.n + 1);
+            childNode.children[0] = leftNode.children[leftNode.n];
+            leftNode.children[leftNode.n] = null;
+            childNode.insertKeyAt(0, parent.keys[c - 1]);
+            parent.keys[c - 1] = leftNode.keys[leftNode.n - 1];
+            leftNode.removeKeyAt(leftNode.n - 1);
+        }
+    }
+
+    /** Move the first key of child c + 1 into child c */
+    private void borrowFromRight(InternalNode<E> parent, int c) {
+        Node<E> child = parent.children[c];
+        Node<E> right = parent.children[c + 1];
+
+        if (child instanceof LeafNode) {
+            child.insertKeyAt(child.n, right.keys[0]);
+            right.removeKeyAt(0);
+            parent.keys[c] = right.keys[0];
+        }
+        else {
+            // The separator comes down and the right node's first key goes up
+            InternalNode<E> childNode = (InternalNode<E>) child;
+            InternalNode<E> rightNode = (InternalNode<E>) right;
+            childNode.children[childNode.n + 1] = rightNode.children[0];
+            childNode.insertKeyAt(childNode.n, parent.keys[c]);
+            parent.keys[c] = rightNode.keys[0];
+            System.arraycopy(rightNode.children, 1, rightNode.children, 0, rightNode.n);
+            rightNode.children[rightNode.n] = null;
+            rightNode.removeKeyAt(0);
+        }
+    }
+
+    /** Merge child i + 1 into child i and drop their separator from parent */
+    private void merge(InternalNode<E> parent, int i) {
+        Node<E> left = parent.children[i];
+        Node<E> right = parent.children[i + 1];
+
+        if (left instanceof LeafNode) {
+            System.arraycopy(right.keys, 0, left.keys, left.n, right.n);
+            left.n += right.n;
+            ((LeafNode<E>) left).next = ((LeafNode<E>) right).next;
+        }
+        else {
+            // The separator comes down between the two halves
+            left.keys[left.n] = parent.keys[i];
+            System.arraycopy(right.keys, 0, left.keys, left.n + 1, right.n);
+            System.arraycopy(((InternalNode<E>) right).children, 0,
+                    ((InternalNode<E>) left).children, left.n + 1, right.n + 1);
+            left.n += 1 + right.n;
+        }
+        parent.removeAt(i);
+    }
+
+    /** Inorder traversal from the root */
+    public void inorder() {
+        for (LeafNode<E> leaf = firstLeaf(); leaf != null; leaf = leaf.next) {
+            for (int i = 0; i < leaf.n; i++) {
+                System.out.print(leaf.keys[i] + " ");
+            }
+        }
+    }
+
+    /** Return the leftmost leaf */
+    private LeafNode<E> firstLeaf() {
+        Node<E> current = root;
+        while (current instanceof InternalNode) {
+            current = ((InternalNode<E>) current).children[0];
+        }
+        return (LeafNode<E>) current;
+    }
+
+    /** Get the number of elements in the tree */
+    public int getSize() {
+        return size;
+    }
+
+    /** Return the maximum number of keys in a node */
+    public int getOrder() {
+        return order;
+    }
+
+    /** Remove all elements from the tree */
+    public void clear() {
+        root = new LeafNode<E>(order);
+        size = 0;
+    }
+
+    /** Return an iterator over the elements in ascending order */
+    @Override
+    public java.util.Iterator<E> iterator() {
+        return new LeafIterator(null, false, null, false);
+    }
+
+    /** Return the elements between from and to in ascending order.
+     * A null bound means the range is unbounded on that side. Each iterator
+     * descends to from once and then walks along the leaves */
+    public Iterable<E> subSet(E from, boolean fromInclusive, E to, boolean toInclusive) {
+        if (from != null && to != null && from.compareTo(to) > 0)
+            throw new IllegalArgumentException("from (" + from + ") is greater than to (" + to + ")");
+
+        return () -> new LeafIterator(from, fromInclusive, to, toInclusive);
+    }
+
+    /** Return the elements e with from <= e < to in ascending order */
+    public Iterable<E> subSet(E from, E to) {
+        return subSet(from, true, to, false);
+    }
+
+    /** Return the elements less than to in ascending order */
+    public Iterable<E> headSet(E to) {
+        return subSet(null, false, to, false);
+    }
+
+    /** Return the elements greater than or equal to from in ascending order */
+    public Iterable<E> tailSet(E from) {
+        return subSet(from, true, null, false);
+    }
+
+    // Inner class LeafIterator. It walks the chain of leaves, so consecutive
+    // elements are read from the same array until a leaf is used up.
+    private class LeafIterator implements java.util.Iterator<E> {
+        private LeafNode<E> leaf; // Leaf holding the next element
+        private int index; // Index of the next element in leaf
+        private E lastReturned = null; // Element returned by the last call to next
+
+        // Upper end of the range
+        private final E to;
+        private final boolean toInclusive;
+
+        public LeafIterator(E from, boolean fromInclusive, E to, boolean toInclusive) {
+            this.to = to;
+            this.toInclusive = toInclusive;
+            if (from == null) {
+                leaf = firstLeaf();
+                index = 0;
+                skipEmpty();
+            }
+            else {
+                seek(from, fromInclusive);
+            }
+        }
+
+        /** Position the iterator at the first element above from
+         * (or equal to from if inclusive) */
+        private void seek(E from, boolean inclusive) {
+            leaf = findLeaf(from);
+            int i = leaf.search(from);
+            index = i >= 0 ? (inclusive ? i : i + 1) : -i - 1;
+            skipEmpty();
+        }
+
+        /** Move on to the next leaf while the current one is used up */
+        private void skipEmpty() {
+            while (leaf != null && index >= leaf.n) {
+                leaf = leaf.next;
+                index = 0;
+            }
+        }
+
+        @Override
+        /** More elements for traversing? */
+        public boolean hasNext() {
+            if (leaf == null)
+                return false;
+            if (to == null)
+                return true;
+
+            int cmp = leaf.keys[index].compareTo(to);
+            return cmp < 0 || (cmp == 0 && toInclusive);
+        }
+
+        @Override
+        /** Get the current element and move to the next */
+        public E next() {
+            if (!hasNext())
+                throw new java.util.NoSuchElementException();
+
+            lastReturned = leaf.keys[index++];
+            skipEmpty();
+            return lastReturned;
+        }
+
+        @Override
+        /** Remove the element returned by the last call to next */
+        public void remove() {
+            if (lastReturned == null)
+                throw new IllegalStateException("next() has not been called since the last remove()");
+
+            delete(lastReturned);
+            seek(lastReturned, false); // Leaves may have been merged, find our place again
+            lastReturned = null;
+        }
+    }
+
+    /** A node of the tree: n keys in ascending order in keys[0..n-1] */
+    protected abstract static class Node<E extends Comparable<E>> {
+        protected E[] keys;
+        protected int n = 0; // Number of keys in use
+
+        @SuppressWarnings("unchecked")
+        public Node(int order) {
+            // One spare slot so a node can overflow before it is split
+            keys = (E[]) new Comparable<?>[order + 1];
+        }
+
+        /** Binary search for e. Return its index, or -(insertion point) - 1 */
+        protected int search(E e) {
+            int low = 0;
+            int high = n - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = e.compareTo(keys[mid]);
+                if (cmp < 0)
+                    high = mid - 1;
+                else if (cmp > 0)
+                    low = mid + 1;
+                else
+                    return mid;
+            }
+            return -low - 1;
+        }
+
+        /** Insert e at index i, shifting the keys after it right */
+        protected void insertKeyAt(int i, E e) {
+            System.arraycopy(keys, i, keys, i + 1, n - i);
+            keys[i] = e;
+            n++;
+        }
+
+        /** Remove the key at index i, shifting the keys after it left */
+        protected void removeKeyAt(int i) {
+            System.arraycopy(keys, i + 1, keys, i, n - i - 1);
+            keys[--n] = null;
+        }
+    }
+
+    /** An internal node: children[i] holds the keys below keys[i],
+     * children[i + 1] the keys greater than or equal to keys[i] */
+    protected static class InternalNode<E extends Comparable<E>> extends Node<E> {
+        protected Node<E>[] children;
+
+        @SuppressWarnings("unchecked")
+        public InternalNode(int order) {
+            super(order);
+            children = (Node<E>[]) new Node<?>[order + 2];
+        }
+
+        /** Return the index of the child whose range contains e */
+        protected int childIndex(E e) {
+            int i = search(e);
+            return i >= 0 ? i + 1 : -i - 1;
+        }
+
+        /** Insert separator key at index i with child to its right */
+        protected void insertAt(int i, E key, Node<E> child) {
+            System.arraycopy(children, i + 1, children, i + 2, n - i);
+            children[i + 1] = child;
+            insertKeyAt(i, key);
+        }
+
+        /** Remove the separator at index i together with the child to its right */
+        protected void removeAt(int i) {
+            System.arraycopy(children, i + 2, children, i + 1, n - i - 1);
+            children[n] = null;
+            removeKeyAt(i);
+        }
+    }
+
+    /** The result of splitting a node: the new right half and the separator
+     * that goes up to the parent in front of it */
+    private static final class Split<E extends Comparable<E>> {
+        final E separator;
+        final Node<E> right;
+
+        Split(E separator, Node<E> right) {
+            this.separator = separator;
+            this.right = right;
+        }
+    }
+
+    /** A leaf holds the elements themselves and a link to the next leaf */
+    protected static class LeafNode<E extends Comparable<E>> extends Node<E> {
+        protected LeafNode<E> next;
+
+        public LeafNode(int order) {
+            super(order);
+        }
+    }
+}
@@ -9,7 +9,7 @@
  */
 package BinarySearchTree;
 
-public class BST<E extends Comparable<E>>  {
+public class BST<E extends Comparable<E>> implements Iterable<E> {
 
     protected TreeNode <E> root;
     protected int size = 0;
@@ -18,11 +18,15 @@ public class BST<E extends Comparable<E>>  {
     public BST(){
     }
 
-    /** Create a binary search tree from an array of objects */
+    /** Create a binary search tree from an array of objects.
+     * If objects is already sorted without duplicates the tree is built in
+     * O(n), otherwise a sorted copy is made first. Either way the result is
+     * perfectly balanced, even though inserting sorted input one by one
+     * would give a chain. */
     public BST(E[] objects){
-        for (int i = 0; i < objects.length; i++){
-            insert(objects[i]);
-        }
+        E[] sorted = isStrictlyAscending(objects) ? objects : sortedDistinct(objects);
+        root = buildTree(sorted, 0, sorted.length - 1);
+        size = sorted.length;
     }
 
     /** return true if the element is in the tree */
@@ -80,6 +84,92 @@ public class BST<E extends Comparable<E>>  {
         return new TreeNode<E>(e);
     }
 
+    /** Build a balanced subtree from sorted[low..high], which must be
+     * ascending without duplicates. The middle element becomes the root */
+    protected TreeNode<E> buildTree(E[] sorted, int low, int high){
+        if (low > high){
+            return null;
+        }
+        int mid = (low + high) >>> 1;
+        TreeNode<E> node = createNewNode(sorted[mid]);
+        node.left = buildTree(sorted, low, mid - 1);
+        node.right = buildTree(sorted, mid + 1, high);
+        return node;
+    }
+
+    /** Insert all the elements of batch into the tree.
+     * Return true if at least one element was inserted.
+     * The batch is sorted and merged with the elements already in the tree
+     * in one pass, then the tree is rebuilt balanced, which costs
+     * O(n + m log m) instead of m separate inserts. A batch that is tiny
+     * compared to the tree is simply inserted one by one. */
+    public boolean insertAll(E[] batch){
+        if (batch.length == 0){
+            return false;
+        }
+        if ((long) batch.length * 32 < size){
+            boolean changed = false;
+            for (int i = 0; i < batch.length; i++){
+                changed |= insert(batch[i]);
+            }
+            return changed;
+        }
+
+        E[] sorted = isStrictlyAscending(batch) ? batch : sortedDistinct(batch);
+        @SuppressWarnings("unchecked")
+        E[] merged = (E[]) new Comparable<?>[size + sorted.length];
+        int n = 0; // Number of elements in merged
+        int i = 0; // Next element of sorted
+        for (E e: this){
+            while (i < sorted.length && sorted[i].compareTo(e) < 0){
+                merged[n++] = sorted[i++];
+            }
+            if (i < sorted.length && sorted[i].compareTo(e) == 0){
+                i++; // Already in the tree
+            }
+            merged[n++] = e;
+        }
+        while (i < sorted.length){
+            merged[n++] = sorted[i++];
+        }
+
+        if (n == size){
+            return false; // Every element was already in the tree
+        }
+        root = buildTree(merged, 0, n - 1);
+        size = n;
+        return true;
+    }
+
+    /** Return true if every element of objects is greater than the one before */
+    private boolean isStrictlyAscending(E[] objects){
+        for (int i = 1; i < objects.length; i++){
+            if (objects[i - 1].compareTo(objects[i]) >= 0){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return a sorted copy of objects with duplicates removed */
+    private E[] sortedDistinct(E[] objects){
+        E[] sorted = objects.clone();
+        java.util.Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++){
+            if (n == 0 || sorted[n - 1].compareTo(sorted[i]) != 0){
+                sorted[n++] = sorted[i];
+            }
+        }
+        return java.util.Arrays.copyOf(sorted, n);
+    }
+
+    /** Receives the elements of a traversal one at a time.
+     * Returning false from visit stops the traversal */
+    public interface Visitor<E> {
+        boolean visit(E e);
+    }
+
     /** inorder traversal from the root */
     public void inorder(){
         inorder(root);
@@ -87,12 +177,7 @@ public class BST<E extends Comparable<E>>  {
 
     /** inorder traversal from the subtree */
     protected void inorder(TreeNode<E> root){
-        if (root == null){
-            return;
-        }
-        inorder(root.left);
-        System.out.print(root.element + " ");
-        inorder(root.right);
+        inorder(root, printer());
     }
 
     /** Postorder traversal from the root */
@@ -100,14 +185,9 @@ public class BST<E extends Comparable<E>>  {
         postorder(root);
     }
 
-    /** Preorder traversal from a subtree */
+    /** Postorder traversal from the subtree */
     protected void postorder(TreeNode<E> root){
-        if (root == null){
-            return;
-        }
-        System.out.print(root.element + " ");
-        postorder(root.left);
-        postorder(root.right);
+        postorder(root, printer());
     }
 
     /** Preorder traversal from the root */
@@ -115,14 +195,105 @@ public class BST<E extends Comparable<E>>  {
         preorder(root);
     }
 
-    /** Postorder traversal from the subtree */
+    /** Preorder traversal from the subtree */
     protected void preorder(TreeNode<E> root){
+        preorder(root, printer());
+    }
+
+    /** Return a visitor that prints every element followed by a space */
+    private Visitor<E> printer(){
+        return e -> {
+            System.out.print(e + " ");
+            return true;
+        };
+    }
+
+    /** Pass the elements to visitor in inorder until it returns false.
+     * Return true if every element was visited */
+    public boolean inorder(Visitor<? super E> visitor){
+        return inorder(root, visitor);
+    }
+
+    /** Pass the elements to visitor in postorder until it returns false.
+     * Return true if every element was visited */
+    public boolean postorder(Visitor<? super E> visitor){
+        return postorder(root, visitor);
+    }
+
+    /** Pass the elements to visitor in preorder until it returns false.
+     * Return true if every element was visited */
+    public boolean preorder(Visitor<? super E> visitor){
+        return preorder(root, visitor);
+    }
+
+    // The traversals below use an explicit stack instead of recursion, so
+    // even a tree degenerated into a long chain cannot overflow the call stack.
+
+    /** Inorder traversal of a subtree with a visitor */
+    protected boolean inorder(TreeNode<E> root, Visitor<? super E> visitor){
+        java.util.ArrayDeque<TreeNode<E>> stack = new java.util.ArrayDeque<>();
+        TreeNode<E> current = root;
+        while (current != null || !stack.isEmpty()){
+            while (current != null){
+                stack.push(current); // Visit the left subtree first
+                current = current.left;
+            }
+            current = stack.pop();
+            if (!visitor.visit(current.element)){
+                return false;
+            }
+            current = current.right;
+        }
+        return true;
+    }
+
+    /** Postorder traversal of a subtree with a visitor */
+    protected boolean postorder(TreeNode<E> root, Visitor<? super E> visitor){
+        java.util.ArrayDeque<TreeNode<E>> stack = new java.util.ArrayDeque<>();
+        TreeNode<E> current = root;
+        TreeNode<E> lastVisited = null;
+        while (current != null || !stack.isEmpty()){
+            if (current != null){
+                stack.push(current);
+                current = current.left;
+            }
+            else {
+                TreeNode<E> top = stack.peek();
+                if (top.right != null && top.right != lastVisited){
+                    current = top.right; // Visit the right subtree before top
+                }
+                else {
+                    if (!visitor.visit(top.element)){
+                        return false;
+                    }
+                    lastVisited = stack.pop();
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Preorder traversal of a subtree with a visitor */
+    protected boolean preorder(TreeNode<E> root, Visitor<? super E> visitor){
         if (root == null){
-            return;
-        } // apparently the book's code was different for some reason.
-        preorder(root.left);
-        preorder(root.right);
-        System.out.print(root.element + " ");
+            return true;
+        }
+        java.util.ArrayDeque<TreeNode<E>> stack = new java.util.ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()){
+            TreeNode<E> node = stack.pop();
+            if (!visitor.visit(node.element)){
+                return false;
+            }
+            // Push right first so that the left subtree is visited first
+            if (node.right != null){
+                stack.push(node.right);
+            }
+            if (node.left != null){
+                stack.push(node.left);
+            }
+        }
+        return true;
     }
 
 
@@ -181,7 +352,7 @@ public class BST<E extends Comparable<E>>  {
             }
             else if (e.compareTo(current.element) > 0){
                 parent = current;
-                current = current.left;
+                current = current.right;
             }
             else
                 break; // Element is in the tree pointed at by current
@@ -194,7 +365,7 @@ public class BST<E extends Comparable<E>>  {
                 root = current.right;
             }
             else {
-                if (e.compareTo(current.element) < 0){
+                if (e.compareTo(parent.element) < 0){
                     parent.left = current.right;
                 }
                 else
@@ -225,60 +396,208 @@ public class BST<E extends Comparable<E>>  {
         return true;
     }
 
-    java.util.Iterator<E> iterator(){
-        return new InorderIterator();
+    /** Return an iterator over the elements in ascending order */
+    @Override
+    public java.util.Iterator<E> iterator(){
+        return new InorderIterator(null, false, null, false);
+    }
+
+    /** Return the greatest element less than or equal to e, or null if there is none */
+    public E floor(E e){
+        return greatestBelow(e, true);
+    }
+
+    /** Return the least element greater than or equal to e, or null if there is none */
+    public E ceiling(E e){
+        return leastAbove(e, true);
+    }
+
+    /** Return the least element strictly greater than e, or null if there is none */
+    public E higher(E e){
+        return leastAbove(e, false);
+    }
+
+    /** Return the greatest element strictly less than e, or null if there is none */
+    public E lower(E e){
+        return greatestBelow(e, false);
+    }
+
+    /** Return the greatest element below e (or equal to e if inclusive) */
+    private E greatestBelow(E e, boolean inclusive){
+        E result = null;
+        TreeNode<E> current = root;
+        while (current != null){
+            int cmp = e.compareTo(current.element);
+            if (cmp > 0 || (cmp == 0 && inclusive)){
+                result = current.element; // a candidate, look for a greater one on the right
+                if (cmp == 0){
+                    break;
+                }
+                current = current.right;
+            }
+            else {
+                current = current.left;
+            }
+        }
+        return result;
+    }
+
+    /** Return the least element above e (or equal to e if inclusive) */
+    private E leastAbove(E e, boolean inclusive){
+        E result = null;
+        TreeNode<E> current = root;
+        while (current != null){
+            int cmp = e.compareTo(current.element);
+            if (cmp < 0 || (cmp == 0 && inclusive)){
+                result = current.element; // a candidate, look for a smaller one on the left
+                if (cmp == 0){
+                    break;
+                }
+                current = current.left;
+            }
+            else {
+                current = current.right;
+            }
+        }
+        return result;
+    }
+
+    /** Return the elements between from and to in ascending order.
+     * A null bound means the range is unbounded on that side. Nothing is
+     * copied: each iterator descends to from once and then streams the
+     * matching elements, stopping as soon as it passes to */
+    public Iterable<E> subSet(E from, boolean fromInclusive, E to, boolean toInclusive){
+        if (from != null && to != null && from.compareTo(to) > 0){
+            throw new IllegalArgumentException("from (" + from + ") is greater than to (" + to + ")");
+        }
+        return () -> new InorderIterator(from, fromInclusive, to, toInclusive);
+    }
+
+    /** Return the elements e with from <= e < to in ascending order */
+    public Iterable<E> subSet(E from, E to){
+        return subSet(from, true, to, false);
+    }
+
+    /** Return the elements less than to in ascending order */
+    public Iterable<E> headSet(E to){
+        return subSet(null, false, to, false);
     }
 
-    // Inner class InorderIterator
+    /** Return the elements greater than or equal to from in ascending order */
+    public Iterable<E> tailSet(E from){
+        return subSet(from, true, null, false);
+    }
+
+    // Inner class InorderIterator. Instead of copying the whole tree into a
+    // list it keeps a stack of the nodes still waiting to be visited, which
+    // is never deeper than the tree. next() is O(1) amortized, and a scan that
+    // stops early only pays for the nodes it actually visited. The iterator
+    // can be limited to a range; a null bound means no limit on that side.
     private class InorderIterator implements java.util.Iterator<E> {
 
-        // Store the elements in a list
-        private java.util.ArrayList<E> list = new java.util.ArrayList<>();
-        private int current = 0; // Point to the current element in the list
+        // Nodes whose element and right subtree have not been visited yet
+        private java.util.ArrayDeque<TreeNode<E>> stack = new java.util.ArrayDeque<>();
+        private E lastReturned = null; // Element returned by the last call to next
+
+        // Upper end of the range
+        private final E to;
+        private final boolean toInclusive;
+
+        public InorderIterator(E from, boolean fromInclusive, E to, boolean toInclusive){
+            this.to = to;
+            this.toInclusive = toInclusive;
+            if (from == null){
+                pushLeft(root); // Start at the smallest element
+            }
+            else {
+                seek(from, fromInclusive);
+            }
+        }
 
-        public InorderIterator(){
-            inorder(); // Traverse binary tree and store elements in list
+        /** Push node and its chain of left children onto the stack */
+        private void pushLeft(TreeNode<E> node){
+            while (node != null){
+                stack.push(node);
+                node = node.left;
+            }
         }
 
-        /** Inorder traversal from the root*/
-        private void inorder(){
-            inorder(root);
+        /** Fill the stack so that the next element is the first one above from
+         * (or equal to from if inclusive). Only one path is walked, O(height) */
+        private void seek(E from, boolean inclusive){
+            stack.clear();
+            TreeNode<E> current = root;
+            while (current != null){
+                int cmp = from.compareTo(current.element);
+                if (cmp < 0 || (cmp == 0 && inclusive)){
+                    stack.push(current); // current and its right subtree come later
+                    current = current.left;
+                }
+                else {
+                    current = current.right;
+                }
+            }
         }
 
-        /** Inorder traversal from a subtree */
-        private void inorder(TreeNode<E> root){
-            if (root == null){
-                return;
+        /** Return true if e lies beyond the upper end of the range */
+        private boolean pastEnd(E e){
+            if (to == null){
+                return false;
             }
-            inorder(root.left);
-            list.add(root.element);
-            inorder(root.right);
+            int cmp = e.compareTo(to);
+            return cmp > 0 || (cmp == 0 && !toInclusive);
         }
 
         @Override
         /** More elements for traversing? */
         public boolean hasNext() {
-            if (current < list.size()){
-                return true;
-            }
-            return false;
+            return !stack.isEmpty() && !pastEnd(stack.peek().element);
         }
 
         @Override
         /** Get the current element and move to the next */
         public E next() {
-            return list.get(current++);
+            if (!hasNext()){
+                throw new java.util.NoSuchElementException();
+            }
+            TreeNode<E> node = stack.pop();
+            pushLeft(node.right); // The right subtree comes right after node
+            lastReturned = node.element;
+            return lastReturned;
         }
 
         @Override
-        /** Remove the current element */
+        /** Remove the element returned by the last call to next */
         public void remove(){
-            delete(list.get(current)); // Delete the current element
-            list.clear(); // clear the list
-            inorder(); // rebuild the list
+            if (lastReturned == null){
+                throw new IllegalStateException("next() has not been called since the last remove()");
+            }
+            delete(lastReturned); // Delete the current element
+
+            // delete may have moved elements between nodes or rotated the
+            // tree, so rebuild the stack from the root. It again holds the
+            // path to the elements greater than the one just removed, O(log n).
+            seek(lastReturned, false);
+            lastReturned = null;
         }
     }
 
+    /** Return a read-only copy of the tree stored in a single array in
+     * Eytzinger order. It is faster to search than the tree itself, and
+     * later changes to the tree do not affect it */
+    public EytzingerTree<E> freeze(){
+        return new EytzingerTree<>(this);
+    }
+
+    /** Like freeze(), but the search runs on primitive long keys computed by
+     * key, which must be strictly increasing in the order of the tree (for
+     * example a timestamp or id field). Comparing longs in one array avoids
+     * loading every element during a search and is several times faster
+     * (compare the two in TreeBenchmark.search) */
+    public LongEytzingerTree<E> freeze(java.util.function.ToLongFunction<? super E> key){
+        return new LongEytzingerTree<>(this, size, key);
+    }
+
     /** Remove all elements from the tree */
     public void clear(){
         root = null;
@@ -287,7 +606,7 @@ public class BST<E extends Comparable<E>>  {
 
     public static void main(String[] args) {
         // create a new BST
-        TestBST<String> tree = new TestBST<>();
+        BST<String> tree = new BST<>();
         System.out.print("Enter (1) to Search, (2) to insert, (3) to print inorder\n" +
                 "Enter (4) to print postorder, (5) to print preorder, (6) to getSize\n" +
                 "Enter (7) to get path from root, (8) to delete, Enter (9) to clear list, (-1) to quit: ");
@@ -331,7 +650,7 @@ public class BST<E extends Comparable<E>>  {
                 String element = input.next();
                 if (tree.search(element)){
                     System.out.print("\nA path from the root to " + element + " is: ");
-                    java.util.ArrayList<TestBST.TreeNode<String>> path = tree.path(element);
+                    java.util.ArrayList<BST.TreeNode<String>> path = tree.path(element);
                     for (int i = 0; path != null && i < path.size(); i++)
                         System.out.print(path.get(i).element + " ");
                     System.out.print("\n");
@@ -361,7 +680,7 @@ public class BST<E extends Comparable<E>>  {
         tree.inorder();
         System.out.print("\n");
 
-        /* Uncomment to test TestBST
+        /* Uncomment to test BST
         tree.insert("George");
         tree.insert("Michael");
         tree.insert("Tom");
@@ -381,13 +700,13 @@ public class BST<E extends Comparable<E>>  {
         System.out.print("\nIs Peter in the tree? " + tree.search("Peter"));
         // Get a path from the root to Peter
         System.out.print("\nA path from the root to Peter is: ");
-        java.util.ArrayList<TestBST.TreeNode<String>> path = tree.path("Peter");
+        java.util.ArrayList<BST.TreeNode<String>> path = tree.path("Peter");
 
         for (int i = 0; path != null && i < path.size(); i++)
             System.out.print(path.get(i).element + " ");
 
         Integer[] numbers = {2, 4, 3, 1, 8, 5, 6, 7};
-        TestBST<Integer> intTree = new TestBST<>(numbers);
+        BST<Integer> intTree = new BST<>(numbers);
         System.out.print("\nInorder (sorted): ");
         intTree.inorder();
          */
@@ -0,0 +1,162 @@
+/** An EytzingerTree is a frozen, read-only copy of a sorted set stored in one
+ * array in Eytzinger (breadth-first) order: the root is at index 1 and the
+ * children of the node at index k are at 2k and 2k + 1, like a binary heap.
+ * There are no node objects and no child pointers, the position of a node
+ * says where its children are. The first levels of the tree, which every
+ * search visits, sit next to each other at the front of the array and stay
+ * in the cache, and a search only computes the next index instead of
+ * loading a pointer to find it.
+ *
+ * The descent never stops early and never branches on where to go: each
+ * step is k = 2k + (a[k] < x ? 1 : 0). When k falls off the bottom, its bits
+ * record every left and right turn taken, and the answer is the node where
+ * the last left turn (for ceiling) or right turn (for floor) happened, which
+ * is found by stripping the trailing turns off k.
+ */
+package BinarySearchTree;
+
+public class EytzingerTree<E extends Comparable<E>> implements Iterable<E> {
+
+    // The elements in Eytzinger order in a[1..n]; a[0] is unused
+    private final E[] a;
+    private final int n;
+
+    /** Create a frozen copy of the elements of tree */
+    EytzingerTree(BST<E> tree) {
+        this(tree, tree.getSize());
+    }
+
+    /** Create a frozen set from an array that is sorted without duplicates */
+    public EytzingerTree(E[] sorted) {
+        this(java.util.Arrays.asList(sorted), sorted.length);
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i - 1].compareTo(sorted[i]) >= 0)
+                throw new IllegalArgumentException("Elements must be strictly ascending at index " + i);
+        }
+    }
+
+    /** Lay out the first size elements of sorted in Eytzinger order */
+    @SuppressWarnings("unchecked")
+    private EytzingerTree(Iterable<E> sorted, int size) {
+        n = size;
+        a = (E[]) new Comparable<?>[n + 1];
+        build(sorted.iterator(), 1);
+    }
+
+    /** Fill the subtree rooted at index k with the next elements of sorted,
+     * visiting it in order: left subtree, k, right subtree */
+    private void build(java.util.Iterator<E> sorted, int k) {
+        if (k <= n) {
+            build(sorted, 2 * k);
+            a[k] = sorted.next();
+            build(sorted, 2 * k + 1);
+        }
+    }
+
+    /** Return true if the element is in the set */
+    public boolean search(E e) {
+        int k = lastLeftTurn(descend(e, false));
+        return k != 0 && a[k].compareTo(e) == 0;
+    }
+
+    /** Return the least element greater than or equal to e, or null if there is none */
+    public E ceiling(E e) {
+        return a[lastLeftTurn(descend(e, false))];
+    }
+
+    /** Return the least element strictly greater than e, or null if there is none */
+    public E higher(E e) {
+        return a[lastLeftTurn(descend(e, true))];
+    }
+
+    /** Return the greatest element less than or equal to e, or null if there is none */
+    public E floor(E e) {
+        return a[lastRightTurn(descend(e, true))];
+    }
+
+    /** Return the greatest element strictly less than e, or null if there is none */
+    public E lower(E e) {
+        return a[lastRightTurn(descend(e, false))];
+    }
+
+    /** Walk from the root to beyond a leaf, going right past every element
+     * less than e (or equal to e too if rightOnEqual). Return the index
+     * where the walk fell off the tree */
+    private int descend(E e, boolean rightOnEqual) {
+        int bias = rightOnEqual ? 1 : 0; // compareTo(...) < bias is "<" or "<="
+        int k = 1;
+        while (k <= n) {
+            k = 2 * k + (a[k].compareTo(e) < bias ? 1 : 0);
+        }
+        return k;
+    }
+
+    /** Return the node where the walk ending at k last went left, 0 if never.
+     * That is k with its trailing 1 bits and one more bit shifted off */
+    static int lastLeftTurn(int k) {
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    /** Return the node where the walk ending at k last went right, 0 if never */
+    static int lastRightTurn(int k) {
+        return k >>> (Integer.numberOfTrailingZeros(k) + 1);
+    }
+
+    /** Return the index of the smallest of n elements, 0 if n is 0 */
+    static int first(int n) {
+        if (n == 0)
+            return 0;
+        int k = 1;
+        while (2 * k <= n)
+            k = 2 * k; // Go left as far as possible
+        return k;
+    }
+
+    /** Return the index of the element after the one at k, 0 at the end */
+    static int next(int k, int n) {
+        if (2 * k + 1 <= n) {
+            // The next element is the leftmost node of the right subtree
+            k = 2 * k + 1;
+            while (2 * k <= n)
+                k = 2 * k;
+            return k;
+        }
+        // Climb while we are a right child, then one more step
+        return lastLeftTurn(k);
+    }
+
+    /** Get the number of elements in the set */
+    public int getSize() {
+        return n;
+    }
+
+    /** Inorder traversal of the set */
+    public void inorder() {
+        for (E e: this) {
+            System.out.print(e + " ");
+        }
+    }
+
+    /** Return an iterator over the elements in ascending order */
+    @Override
+    public java.util.Iterator<E> iterator() {
+        return new java.util.Iterator<E>() {
+            private int k = first(n); // Index of the next element, 0 at the end
+
+            @Override
+            public boolean hasNext() {
+                return k != 0;
+            }
+
+            @Override
+            public E next() {
+                if (k == 0)
+                    throw new java.util.NoSuchElementException();
+
+                E e = a[k];
+                k = EytzingerTree.next(k, n);
+                return e;
+            }
+        };
+    }
+}
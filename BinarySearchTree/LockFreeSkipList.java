@@ -0,0 +1,283 @@
+/** A lock-free skip list is an ordered set that many threads can use at the
+ * same time without locks. The elements sit in a sorted linked list (level
+ * 0), and every element also appears in a random number of sparser lists
+ * stacked above it, each one skipping over about half of the elements of
+ * the list below. A search starts in the top list and drops one level
+ * whenever the next element would overshoot, so it takes O(log n) steps on
+ * average, like a balanced tree, but an insert or delete only changes a few
+ * next links.
+ *
+ * Every link is an AtomicMarkableReference: a pointer plus a "deleted" mark
+ * that are changed together with compareAndSet. A delete first marks the
+ * links of a node, which makes it logically gone, and any thread that later
+ * walks past a marked node unlinks it. insert and delete are lock-free,
+ * search is wait-free and never writes. Based on the LockFreeSkipList of
+ * Herlihy and Shavit, "The Art of Multiprocessor Programming", chapter 14.
+ */
+package BinarySearchTree;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LockFreeSkipList<E extends Comparable<E>> implements Iterable<E> {
+
+    // Highest level of a node. 2^31 elements are plenty for 32 levels
+    private static final int MAX_LEVEL = 31;
+
+    // Sentinel in front of every list. Its item is null and it is never removed
+    private final Node<E> head = new Node<E>(null, MAX_LEVEL);
+
+    // Number of elements. Exact when no update is in progress
+    private final LongAdder size = new LongAdder();
+
+    /** Create an empty skip list */
+    public LockFreeSkipList() {
+    }
+
+    /** Create a skip list from an array of objects */
+    public LockFreeSkipList(E[] objects) {
+        for (int i = 0; i < objects.length; i++) {
+            insert(objects[i]);
+        }
+    }
+
+    /** Return true if the element is in the list. Never blocks or retries */
+    public boolean search(E e) {
+        boolean[] marked = {false};
+        Node<E> pred = head;
+        Node<E> curr = null;
+        for (int level = MAX_LEVEL; level >= 0; level--) {
+            curr = pred.next[level].getReference();
+            while (curr != null) {
+                Node<E> succ = curr.next[level].get(marked);
+                if (marked[0]) {
+                    curr = succ; // curr is being deleted, step over it
+                }
+                else if (curr.item.compareTo(e) < 0) {
+                    pred = curr;
+                    curr = succ;
+                }
+                else
+                    break;
+            }
+        }
+        return curr != null && curr.item.compareTo(e) == 0;
+    }
+
+    /** Insert element e into the list.
+     * Return true if the element is inserted successfully */
+    @SuppressWarnings("unchecked")
+    public boolean insert(E e) {
+        int topLevel = randomLevel();
+        Node<E>[] preds = (Node<E>[]) new Node<?>[MAX_LEVEL + 1];
+        Node<E>[] succs = (Node<E>[]) new Node<?>[MAX_LEVEL + 1];
+
+        while (true) {
+            if (find(e, preds, succs))
+                return false; // Duplicate element not inserted
+
+            Node<E> newNode = new Node<E>(e, topLevel);
+            for (int level = 0; level <= topLevel; level++) {
+                newNode.next[level].set(succs[level], false);
+            }
+
+            // Linking the bottom level is what adds e to the set
+            if (!preds[0].next[0].compareAndSet(succs[0], newNode, false, false))
+                continue; // The bottom list changed under us, start over
+
+            // Then link the levels above, which only make searches faster
+            for (int level = 1; level <= topLevel; level++) {
+                while (true) {
+                    Node<E> pred = preds[level];
+                    Node<E> succ = succs[level];
+                    Node<E> oldNext = newNode.next[level].getReference();
+                    if (oldNext != succ && !newNode.next[level].compareAndSet(oldNext, succ, false, false)) {
+                        // newNode is already being deleted, leave the upper levels alone
+                        size.increment();
+                        return true;
+                    }
+                    if (pred.next[level].compareAndSet(succ, newNode, false, false))
+                        break;
+                    find(e, preds, succs); // Something changed around e, look again
+                }
+            }
+
+            size.increment();
+            return true;
+        }
+    }
+
+    /** Delete an element from the list.
+     * Return true if the element is deleted successfully.
+     * Return false if the element is not in the list */
+    @SuppressWarnings("unchecked")
+    public boolean delete(E e) {
+        Node<E>[] preds = (Node<E>[]) new Node<?>[MAX_LEVEL + 1];
+        Node<E>[] succs = (Node<E>[]) new Node<?>[MAX_LEVEL + 1];
+
+        if (!find(e, preds, succs))
+            return false; // Element is not in the list
+
+        // Mark the upper levels first, top-down, so the node stops being used as a shortcut
+        Node<E> nodeToRemove = succs[0];
+        boolean[] marked = {false};
+        for (int level = nodeToRemove.topLevel; level >= 1; level--) {
+            Node<E> succ = nodeToRemove.next[level].get(marked);
+            while (!marked[0]) {
+                nodeToRemove.next[level].compareAndSet(succ, succ, false, true);
+                succ = nodeToRemove.next[level].get(marked);
+            }
+        }
+
+        // Marking the bottom level is what removes e; only one thread can win it
+        Node<E> succ = nodeToRemove.next[0].get(marked);
+        while (true) {
+            boolean iMarkedIt = nodeToRemove.next[0].compareAndSet(succ, succ, false, true);
+            succ = nodeToRemove.next[0].get(marked);
+            if (iMarkedIt) {
+                find(e, preds, succs); // Unlink the node at every level
+                size.decrement();
+                return true;
+            }
+            else if (marked[0])
+                return false; // Another thread deleted it first
+        }
+    }
+
+    /** Fill preds and succs with the nodes around e at every level, unlinking
+     * any marked node on the way. Return true if e is in the list */
+    private boolean find(E e, Node<E>[] preds, Node<E>[] succs) {
+        boolean[] marked = {false};
+        retry:
+        while (true) {
+            Node<E> pred = head;
+            Node<E> curr = null;
+            for (int level = MAX_LEVEL; level >= 0; level--) {
+                curr = pred.next[level].getReference();
+                while (curr != null) {
+                    Node<E> succ = curr.next[level].get(marked);
+                    if (marked[0]) {
+                        // curr is deleted, unlink it. If pred changed meanwhile start over
+                        if (!pred.next[level].compareAndSet(curr, succ, false, false))
+                            continue retry;
+                        curr = succ;
+                    }
+                    else if (curr.item.compareTo(e) < 0) {
+                        pred = curr;
+                        curr = succ;
+                    }
+                    else
+                        break;
+                }
+                preds[level] = pred;
+                succs[level] = curr;
+            }
+            return curr != null && curr.item.compareTo(e) == 0;
+        }
+    }
+
+    /** Return a random level: 0 with probability 1/2, 1 with 1/4 and so on */
+    private static int randomLevel() {
+        return Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt() | (1 << MAX_LEVEL));
+    }
+
+    /** Inorder traversal of the list */
+    public void inorder() {
+        for (E e: this) {
+            System.out.print(e + " ");
+        }
+    }
+
+    /** Get the number of elements in the list. While other threads are
+     * inserting or deleting this is only an estimate */
+    public int getSize() {
+        return (int) Math.min(size.sum(), Integer.MAX_VALUE);
+    }
+
+    /** Remove all elements from the list. This is not atomic:
+     * elements inserted while clear is running may survive */
+    public void clear() {
+        java.util.Iterator<E> iterator = iterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /** Return an iterator over the elements in ascending order. It is weakly
+     * consistent: it never throws ConcurrentModificationException, returns
+     * every element that is in the list for the whole iteration exactly once,
+     * and may or may not return elements inserted or deleted meanwhile */
+    @Override
+    public java.util.Iterator<E> iterator() {
+        return new SkipListIterator();
+    }
+
+    // Inner class SkipListIterator. Walks the bottom list, skipping marked nodes
+    private class SkipListIterator implements java.util.Iterator<E> {
+        private Node<E> next; // Node holding the next element, null at the end
+        private E lastReturned = null; // Element returned by the last call to next
+
+        public SkipListIterator() {
+            next = advance(head);
+        }
+
+        /** Return the first unmarked node after node in the bottom list */
+        private Node<E> advance(Node<E> node) {
+            boolean[] marked = {false};
+            Node<E> curr = node.next[0].getReference();
+            while (curr != null) {
+                Node<E> succ = curr.next[0].get(marked);
+                if (!marked[0])
+                    return curr;
+                curr = succ;
+            }
+            return null;
+        }
+
+        @Override
+        /** More elements for traversing? */
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        /** Get the current element and move to the next */
+        public E next() {
+            if (next == null)
+                throw new java.util.NoSuchElementException();
+
+            lastReturned = next.item;
+            next = advance(next);
+            return lastReturned;
+        }
+
+        @Override
+        /** Remove the element returned by the last call to next */
+        public void remove() {
+            if (lastReturned == null)
+                throw new IllegalStateException("next() has not been called since the last remove()");
+
+            delete(lastReturned);
+            lastReturned = null;
+        }
+    }
+
+    /** A node holds one element and one link for each of its levels */
+    private static class Node<E extends Comparable<E>> {
+        private final E item;
+        private final int topLevel;
+        private final AtomicMarkableReference<Node<E>>[] next;
+
+        @SuppressWarnings("unchecked")
+        public Node(E item, int topLevel) {
+            this.item = item;
+            this.topLevel = topLevel;
+            next = (AtomicMarkableReference<Node<E>>[]) new AtomicMarkableReference<?>[topLevel + 1];
+            for (int i = 0; i < next.length; i++) {
+                next[i] = new AtomicMarkableReference<Node<E>>(null, false);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/** A LongEytzingerTree is an EytzingerTree whose searches run on a long key
+ * of every element instead of on compareTo. The keys are kept in a long
+ * array in Eytzinger order next to the elements, so a search step is one
+ * array load and one comparison of two longs, which the JIT turns into a
+ * conditional move: no element is loaded and no call is made until the
+ * answer is known. Build one with BST.freeze(key).
+ */
+package BinarySearchTree;
+
+public class LongEytzingerTree<E extends Comparable<E>> implements Iterable<E> {
+
+    // keys[k] is the key of elements[k], both in Eytzinger order in [1..n]
+    private final long[] keys;
+    private final E[] elements;
+    private final int n;
+
+    /** Lay out the first size elements of sorted in Eytzinger order */
+    @SuppressWarnings("unchecked")
+    LongEytzingerTree(Iterable<E> sorted, int size, java.util.function.ToLongFunction<? super E> key) {
+        n = size;
+        keys = new long[n + 1];
+        elements = (E[]) new Comparable<?>[n + 1];
+        build(sorted.iterator(), key, 1);
+        checkKeysIncrease();
+    }
+
+    /** Fill the subtree rooted at index k with the next elements of sorted and
+     * their keys, visiting it in order: left subtree, k, right subtree */
+    private void build(java.util.Iterator<E> sorted, java.util.function.ToLongFunction<? super E> key, int k) {
+        if (k <= n) {
+            build(sorted, key, 2 * k);
+            elements[k] = sorted.next();
+            keys[k] = key.applyAsLong(elements[k]);
+            build(sorted, key, 2 * k + 1);
+        }
+    }
+
+    /** Walk the keys in order and throw unless each is greater than the one before */
+    private void checkKeysIncrease() {
+        int previous = EytzingerTree.first(n);
+        if (previous == 0)
+            return; // No elements
+
+        for (int k = EytzingerTree.next(previous, n); k != 0; previous = k, k = EytzingerTree.next(k, n)) {
+            if (keys[k] <= keys[previous])
+                throw new IllegalArgumentException("Keys must be strictly increasing: "
+                        + keys[previous] + " is followed by " + keys[k]);
+        }
+    }
+
+    /** Return true if an element with this key is in the set */
+    public boolean search(long key) {
+        int k = EytzingerTree.lastLeftTurn(descend(key, false));
+        return k != 0 && keys[k] == key;
+    }
+
+    /** Return the element with this key, or null if there is none */
+    public E get(long key) {
+        int k = EytzingerTree.lastLeftTurn(descend(key, false));
+        return k != 0 && keys[k] == key ? elements[k] : null;
+    }
+
+    /** Return the element with the least key greater than or equal to key, or null */
+    public E ceiling(long key) {
+        return elements[EytzingerTree.lastLeftTurn(descend(key, false))];
+    }
+
+    /** Return the element with the least key strictly greater than key, or null */
+    public E higher(long key) {
+        return elements[EytzingerTree.lastLeftTurn(descend(key, true))];
+    }
+
+    /** Return the element with the greatest key less than or equal to key, or null */
+    public E floor(long key) {
+        return elements[EytzingerTree.lastRightTurn(descend(key, true))];
+    }
+
+    /** Return the element with the greatest key strictly less than key, or null */
+    public E lower(long key) {
+        return elements[EytzingerTree.lastRightTurn(descend(key, false))];
+    }
+
+    /** Walk from the root to beyond a leaf, going right past every key less
+     * than key (or equal to key too if rightOnEqual). Return the index
+     * where the walk fell off the tree */
+    private int descend(long key, boolean rightOnEqual) {
+        int k = 1;
+        if (rightOnEqual) {
+            while (k <= n)
+                k = 2 * k + (keys[k] <= key ? 1 : 0);
+        }
+        else {
+            while (k <= n)
+                k = 2 * k + (keys[k] < key ? 1 : 0);
+        }
+        return k;
+    }
+
+    /** Get the number of elements in the set */
+    public int getSize() {
+        return n;
+    }
+
+    /** Inorder traversal of the set */
+    public void inorder() {
+        for (E e: this) {
+            System.out.print(e + " ");
+        }
+    }
+
+    /** Return an iterator over the elements in ascending order */
+    @Override
+    public java.util.Iterator<E> iterator() {
+        return new java.util.Iterator<E>() {
+            private int k = EytzingerTree.first(n); // Index of the next element, 0 at the end
+
+            @Override
+            public boolean hasNext() {
+                return k != 0;
+            }
+
+            @Override
+            public E next() {
+                if (k == 0)
+                    throw new java.util.NoSuchElementException();
+
+                E e = elements[k];
+                k = EytzingerTree.next(k, n);
+                return e;
+            }
+        };
+    }
+}
@@ -0,0 +1,101 @@
+/** An order-statistic tree is an AVL tree in which every node also knows the
+ * size of its subtree, i.e. how many elements are stored below it including
+ * itself. With that one number we can walk down a single path to answer
+ * "which element is the k-th smallest" (select), "how many elements are
+ * smaller than e" (rank) and "how many elements lie between a and b"
+ * (countRange), all in O(log n) instead of traversing the whole tree.
+ * The sizes are fixed up in updateHeight, which AVLTree already calls for
+ * every node whose subtree changed during insert, delete and rotations.
+ */
+package BinarySearchTree;
+
+public class OrderStatisticTree<E extends Comparable<E>> extends AVLTree<E> {
+
+    /** Create an empty order-statistic tree */
+    public OrderStatisticTree() {
+    }
+
+    /** Create an order-statistic tree from an array of objects */
+    public OrderStatisticTree(E[] objects) {
+        super(objects);
+    }
+
+    @Override /** Override createNewNode to create an OrderStatisticNode */
+    protected OrderStatisticNode<E> createNewNode(E e) {
+        return new OrderStatisticNode<E>(e);
+    }
+
+    @Override /** Update the subtree size together with the height */
+    protected void updateHeight(AVLTreeNode<E> node) {
+        super.updateHeight(node);
+        ((OrderStatisticNode<E>) node).size = 1 + size(node.left) + size(node.right);
+    }
+
+    /** Return the number of elements in the subtree rooted at node */
+    private int size(TreeNode<E> node) {
+        return node == null ? 0 : ((OrderStatisticNode<E>) node).size;
+    }
+
+    /** Return the k-th smallest element, counting from 0 */
+    public E select(int k) {
+        if (k < 0 || k >= size)
+            throw new IndexOutOfBoundsException("Index: " + k + ", Size: " + size);
+
+        TreeNode<E> current = root;
+        while (true) {
+            int leftSize = size(current.left);
+            if (k < leftSize) {
+                current = current.left;
+            }
+            else if (k > leftSize) {
+                k -= leftSize + 1; // Skip the left subtree and current
+                current = current.right;
+            }
+            else
+                return current.element;
+        }
+    }
+
+    /** Return the number of elements less than e. If e is in the tree
+     * this is its index in sorted order, counting from 0 */
+    public int rank(E e) {
+        return countLess(e, false);
+    }
+
+    /** Return the number of elements e with lo <= e <= hi */
+    public int countRange(E lo, E hi) {
+        if (lo.compareTo(hi) > 0)
+            return 0;
+        return countLess(hi, true) - countLess(lo, false);
+    }
+
+    /** Return the number of elements less than e, or less than
+     * or equal to e if inclusive is true */
+    private int countLess(E e, boolean inclusive) {
+        int count = 0;
+        TreeNode<E> current = root;
+        while (current != null) {
+            int cmp = e.compareTo(current.element);
+            if (cmp < 0) {
+                current = current.left;
+            }
+            else if (cmp > 0) {
+                count += size(current.left) + 1; // current and its left subtree are smaller
+                current = current.right;
+            }
+            else {
+                return count + size(current.left) + (inclusive ? 1 : 0);
+            }
+        }
+        return count;
+    }
+
+    /** OrderStatisticNode is AVLTreeNode plus the size of its subtree */
+    protected static class OrderStatisticNode<E extends Comparable<E>> extends AVLTreeNode<E> {
+        protected int size = 1; // New data field
+
+        public OrderStatisticNode(E o) {
+            super(o);
+        }
+    }
+}
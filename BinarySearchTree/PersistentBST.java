@@ -0,0 +1,233 @@
+/** A PersistentBST is an immutable, balanced binary search tree. insert and
+ * delete never change a tree: they return a new tree and leave the old one
+ * exactly as it was. The new tree only copies the nodes on the path from
+ * the root to the changed spot, O(log n) of them, and shares every other
+ * node with the old tree. All fields are final, so a tree can be handed to
+ * any number of reader threads without locking, and holding on to a tree
+ * is an O(1) point-in-time snapshot that later updates cannot disturb.
+ *
+ * The tree is kept balanced with the same rotations as AVLTree, applied
+ * while the copied path is rebuilt on the way back up.
+ */
+package BinarySearchTree;
+
+public final class PersistentBST<E extends Comparable<E>> implements Iterable<E> {
+
+    private final Node<E> root;
+    private final int size;
+
+    /** Create an empty tree */
+    public PersistentBST() {
+        this(null, 0);
+    }
+
+    private PersistentBST(Node<E> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /** Return true if the element is in the tree */
+    public boolean search(E e) {
+        Node<E> current = root;
+        while (current != null) {
+            int cmp = e.compareTo(current.element);
+            if (cmp < 0)
+                current = current.left;
+            else if (cmp > 0)
+                current = current.right;
+            else
+                return true; // Element is found
+        }
+        return false;
+    }
+
+    /** Return a tree that also contains e. If e is already in
+     * the tree, this tree itself is returned */
+    public PersistentBST<E> insert(E e) {
+        Node<E> newRoot = insert(root, e);
+        return newRoot == root ? this : new PersistentBST<E>(newRoot, size + 1);
+    }
+
+    /** Return a tree without e. If e is not in the tree,
+     * this tree itself is returned */
+    public PersistentBST<E> delete(E e) {
+        Node<E> newRoot = delete(root, e);
+        return newRoot == root ? this : new PersistentBST<E>(newRoot, size - 1);
+    }
+
+    /** Return a copy of the subtree with e inserted, or node itself if e is in it */
+    private static <E extends Comparable<E>> Node<E> insert(Node<E> node, E e) {
+        if (node == null)
+            return new Node<E>(e, null, null);
+
+        int cmp = e.compareTo(node.element);
+        if (cmp < 0) {
+            Node<E> left = insert(node.left, e);
+            return left == node.left ? node : balance(node.element, left, node.right);
+        }
+        else if (cmp > 0) {
+            Node<E> right = insert(node.right, e);
+            return right == node.right ? node : balance(node.element, node.left, right);
+        }
+        else
+            return node; // Duplicate element not inserted
+    }
+
+    /** Return a copy of the subtree with e deleted, or node itself if e is not in it */
+    private static <E extends Comparable<E>> Node<E> delete(Node<E> node, E e) {
+        if (node == null)
+            return null; // Element is not in the tree
+
+        int cmp = e.compareTo(node.element);
+        if (cmp < 0) {
+            Node<E> left = delete(node.left, e);
+            return left == node.left ? node : balance(node.element, left, node.right);
+        }
+        else if (cmp > 0) {
+            Node<E> right = delete(node.right, e);
+            return right == node.right ? node : balance(node.element, node.left, right);
+        }
+
+        // node holds e. With one child, that child takes its place;
+        // otherwise the smallest element of the right subtree does
+        if (node.left == null)
+            return node.right;
+        if (node.right == null)
+            return node.left;
+
+        Node<E> smallest = node.right;
+        while (smallest.left != null)
+            smallest = smallest.left;
+        return balance(smallest.element, node.left, deleteMin(node.right));
+    }
+
+    /** Return a copy of the subtree without its smallest element */
+    private static <E extends Comparable<E>> Node<E> deleteMin(Node<E> node) {
+        if (node.left == null)
+            return node.right;
+        return balance(node.element, deleteMin(node.left), node.right);
+    }
+
+    /** Return a new node with element e and subtrees left and right, rotated
+     * if their heights differ by two (see AVLTree for the four cases) */
+    private static <E extends Comparable<E>> Node<E> balance(E e, Node<E> left, Node<E> right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+
+        if (leftHeight > rightHeight + 1) {
+            if (height(left.left) >= height(left.right)) {
+                // LL: left becomes the root of the subtree
+                return new Node<E>(left.element, left.left, new Node<E>(e, left.right, right));
+            }
+            else {
+                // LR: the right child of left becomes the root
+                Node<E> c = left.right;
+                return new Node<E>(c.element, new Node<E>(left.element, left.left, c.left),
+                        new Node<E>(e, c.right, right));
+            }
+        }
+        else if (rightHeight > leftHeight + 1) {
+            if (height(right.right) >= height(right.left)) {
+                // RR: right becomes the root of the subtree
+                return new Node<E>(right.element, new Node<E>(e, left, right.left), right.right);
+            }
+            else {
+                // RL: the left child of right becomes the root
+                Node<E> c = right.left;
+                return new Node<E>(c.element, new Node<E>(e, left, c.left),
+                        new Node<E>(right.element, c.right, right.right));
+            }
+        }
+        return new Node<E>(e, left, right);
+    }
+
+    /** Return the height of a subtree, -1 for an empty one */
+    private static int height(Node<?> node) {
+        return node == null ? -1 : node.height;
+    }
+
+    /** Get the number of elements in the tree */
+    public int getSize() {
+        return size;
+    }
+
+    /** Return true if the tree has no elements */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Return the height of the tree, -1 for an empty tree */
+    public int height() {
+        return height(root);
+    }
+
+    /** Inorder traversal from the root */
+    public void inorder() {
+        inorder(e -> {
+            System.out.print(e + " ");
+            return true;
+        });
+    }
+
+    /** Pass the elements to visitor in inorder until it returns false.
+     * Return true if every element was visited */
+    public boolean inorder(BST.Visitor<? super E> visitor) {
+        for (E e: this) {
+            if (!visitor.visit(e))
+                return false;
+        }
+        return true;
+    }
+
+    /** Return an iterator over the elements in ascending order. The tree
+     * never changes, so the iterator needs no locking and cannot fail */
+    @Override
+    public java.util.Iterator<E> iterator() {
+        return new java.util.Iterator<E>() {
+            // Nodes whose element and right subtree have not been visited yet
+            private final java.util.ArrayDeque<Node<E>> stack = new java.util.ArrayDeque<>();
+
+            {
+                pushLeft(root);
+            }
+
+            /** Push node and its chain of left children onto the stack */
+            private void pushLeft(Node<E> node) {
+                while (node != null) {
+                    stack.push(node);
+                    node = node.left;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public E next() {
+                if (stack.isEmpty())
+                    throw new java.util.NoSuchElementException();
+
+                Node<E> node = stack.pop();
+                pushLeft(node.right);
+                return node.element;
+            }
+        };
+    }
+
+    /** An immutable node. Its height is computed once, when it is created */
+    private static final class Node<E> {
+        private final E element;
+        private final Node<E> left;
+        private final Node<E> right;
+        private final int height;
+
+        public Node(E element, Node<E> left, Node<E> right) {
+            this.element = element;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(height(left), height(right));
+        }
+    }
+}
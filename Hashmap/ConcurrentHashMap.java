@@ -0,0 +1,494 @@
+/* A thread-safe version of our hash map. Instead of guarding the whole map
+ * with one lock, every bucket (bin) is locked on its own: a writer only
+ * synchronizes on the first node of the bin it changes, and an empty bin is
+ * filled with a single compare-and-set. Readers never lock at all, they just
+ * follow volatile links. When the table has to grow, the bins are split into
+ * the new table in ranges, and any writer that runs into a bin that has
+ * already moved joins in and claims a range of its own, so a resize is done
+ * by all the busy threads together instead of by one unlucky put.
+ */
+
+package hashmap;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+public class ConcurrentHashMap<K, V> implements MyMap<K, V> {
+
+    // Define the default hash-table size. Must be a power of 2
+    private static int DEFAULT_INITIAL_CAPACITY = 16;
+
+    // Define the maximum hash-table size. 1 << 30 is same as 2^30
+    private static int MAX_CAPACITY = 1 << 30;
+
+    // define the default load factor
+    private static float DEFAULT_MAX_LOAD_FACTOR = 0.75f;
+
+    // The fewest bins a thread claims at once while helping a resize
+    private static int MIN_TRANSFER_STRIDE = 16;
+
+    // Hash of a forwarding node. Real hashes are never negative
+    private static final int MOVED = -1;
+
+    private static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** A key/value node in a bin. The links are volatile so readers can walk them without locking */
+    static class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile Node<K, V> next;
+
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /** Placed in a bin of the old table once the bin has been moved to nextTable */
+    static class ForwardingNode<K, V> extends Node<K, V> {
+        final AtomicReferenceArray<Node<K, V>> nextTable;
+
+        ForwardingNode(AtomicReferenceArray<Node<K, V>> nextTable) {
+            super(MOVED, null, null, null);
+            this.nextTable = nextTable;
+        }
+    }
+
+    // The bins. Replaced as a whole only at the end of a resize
+    private volatile AtomicReferenceArray<Node<K, V>> table;
+
+    // The table being filled by a resize in progress, otherwise null
+    private volatile AtomicReferenceArray<Node<K, V>> nextTable;
+
+    // Bins of table at or above this index have not been claimed by a resizing thread yet
+    private final AtomicInteger transferIndex = new AtomicInteger();
+
+    // Guards starting and finishing a resize; bins are never locked with it
+    private final Object resizeLock = new Object();
+
+    // Number of threads currently moving bins. Guarded by resizeLock
+    private int resizers = 0;
+
+    // Grow the table once the size reaches this value
+    private volatile int threshold;
+
+    // specify a load factor used in the hash-table
+    private final float loadFactorThreshold;
+
+    // The number of entries in the map, striped so writers do not contend on one counter
+    private final LongAdder count = new LongAdder();
+
+    /** Construct a map with the default capacity and load factor */
+    public ConcurrentHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_LOAD_FACTOR);
+    }
+
+    /** Construct a map with the specified initial
+     capacity and default load factor */
+    public ConcurrentHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_MAX_LOAD_FACTOR);
+    }
+
+    /** Construct a map with the specified initial capacity and load factor */
+    public ConcurrentHashMap(int initialCapacity, float loadFactorThreshold) {
+        int capacity;
+        if (initialCapacity > MAX_CAPACITY)
+            capacity = MAX_CAPACITY;
+        else
+            capacity = trimToPowerOf2(initialCapacity);
+
+        this.loadFactorThreshold = loadFactorThreshold;
+        this.threshold = (int) (capacity * loadFactorThreshold);
+        table = new AtomicReferenceArray<>(capacity);
+    }
+
+    @Override /** Remove all entries from this map */
+    public void clear() {
+        long removed = 0;
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        int i = 0;
+        while (i < tab.length()) {
+            Node<K, V> first = tab.get(i);
+            if (first == null)
+                i++;
+            else if (first.hash == MOVED) {
+                // Finish the resize, then start over on the new table
+                tab = helpTransfer(tab, (ForwardingNode<K, V>) first);
+                i = 0;
+            }
+            else {
+                synchronized (first) {
+                    if (tab.get(i) == first) {
+                        for (Node<K, V> node = first; node != null; node = node.next)
+                            removed++;
+                        tab.set(i++, null);
+                    }
+                }
+            }
+        }
+        count.add(-removed);
+    }
+
+    @Override /** Return true if the specified key is in the map */
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    @Override /** Return true if this map contains the value */
+    public boolean containsValue(V value) {
+        if (value == null)
+            throw new NullPointerException();
+
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (int i = 0; i < tab.length(); i++) {
+            if (binContainsValue(tab, i, value))
+                return true;
+        }
+        return false;
+    }
+
+    @Override /** Return a set of entries in the map.
+     * The set is a snapshot that may or may not reflect concurrent updates */
+    public java.util.Set<MyMap.Entry<K, V>> entrySet() {
+        java.util.Set<MyMap.Entry<K, V>> set = new java.util.HashSet<>();
+
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (int i = 0; i < tab.length(); i++)
+            forEachNode(tab, i, node -> set.add(new MyMap.Entry<>(node.key, node.value)));
+
+        return set;
+    }
+
+    @Override /** Return the value that matches the specified key */
+    public V get(K key) {
+        int hash = spread(key.hashCode());
+        AtomicReferenceArray<Node<K, V>> tab = table;
+
+        // No locking: follow forwarding nodes into the new table if the bin has moved
+        while (true) {
+            Node<K, V> node = tab.get(hash & (tab.length() - 1));
+            if (node == null)
+                return null;
+            if (node.hash == MOVED) {
+                tab = ((ForwardingNode<K, V>) node).nextTable;
+                continue;
+            }
+
+            for (; node != null; node = node.next) {
+                if (node.hash == hash && (node.key == key || node.key.equals(key)))
+                    return node.value;
+            }
+            return null;
+        }
+    }
+
+    @Override /** Return true if this map contains no entries */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override /** Return a set consisting of the keys in this map.
+     * The set is a snapshot that may or may not reflect concurrent updates */
+    public java.util.Set<K> keySet() {
+        java.util.Set<K> set = new java.util.HashSet<>();
+
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (int i = 0; i < tab.length(); i++)
+            forEachNode(tab, i, node -> set.add(node.key));
+
+        return set;
+    }
+
+    @Override /** Add an entry (key, value) into the map. Null values are not allowed */
+    public V put(K key, V value) {
+        return putValue(key, value, false);
+    }
+
+    /** Add (key, value) only if the key is not in the map yet.
+     * Return the value already in the map, or null if value was stored */
+    public V putIfAbsent(K key, V value) {
+        return putValue(key, value, true);
+    }
+
+    @Override /** Remove the entries for the specified key */
+    public void remove(K key) {
+        int hash = spread(key.hashCode());
+        AtomicReferenceArray<Node<K, V>> tab = table;
+
+        while (true) {
+            int index = hash & (tab.length() - 1);
+            Node<K, V> first = tab.get(index);
+            if (first == null)
+                return;
+            if (first.hash == MOVED) {
+                tab = helpTransfer(tab, (ForwardingNode<K, V>) first);
+                continue;
+            }
+
+            synchronized (first) {
+                if (tab.get(index) != first)
+                    continue; // The bin changed before we got the lock, try again
+
+                Node<K, V> previous = null;
+                for (Node<K, V> node = first; node != null; node = node.next) {
+                    if (node.hash == hash && (node.key == key || node.key.equals(key))) {
+                        if (previous == null)
+                            tab.set(index, node.next);
+                        else
+                            previous.next = node.next;
+                        count.decrement();
+                        break;
+                    }
+                    previous = node;
+                }
+            }
+            return;
+        }
+    }
+
+    @Override /** Return the number of entries in this map */
+    public int size() {
+        long n = count.sum();
+        if (n < 0)
+            return 0;
+        return n > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) n;
+    }
+
+    @Override /** Return a set consisting of the values in this map.
+     * The set is a snapshot that may or may not reflect concurrent updates */
+    public java.util.Set<V> values() {
+        java.util.Set<V> set = new java.util.HashSet<>();
+
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (int i = 0; i < tab.length(); i++)
+            forEachNode(tab, i, node -> set.add(node.value));
+
+        return set;
+    }
+
+    /** Shared body of put and putIfAbsent */
+    private V putValue(K key, V value, boolean onlyIfAbsent) {
+        if (value == null)
+            throw new NullPointerException("null values are not allowed");
+
+        int hash = spread(key.hashCode());
+        AtomicReferenceArray<Node<K, V>> tab = table;
+
+        while (true) {
+            int index = hash & (tab.length() - 1);
+            Node<K, V> first = tab.get(index);
+
+            if (first == null) {
+                // Empty bin: no lock needed, just publish the node with a CAS
+                if (tab.compareAndSet(index, null, new Node<>(hash, key, value, null)))
+                    break;
+            }
+            else if (first.hash == MOVED)
+                tab = helpTransfer(tab, (ForwardingNode<K, V>) first);
+            else {
+                V oldValue = null;
+                boolean found = false;
+                synchronized (first) {
+                    if (tab.get(index) != first)
+                        continue; // The bin changed before we got the lock, try again
+
+                    Node<K, V> node = first;
+                    while (true) {
+                        if (node.hash == hash && (node.key == key || node.key.equals(key))) {
+                            found = true;
+                            oldValue = node.value;
+                            if (!onlyIfAbsent)
+                                node.value = value; // Replace old value with new value
+                            break;
+                        }
+                        if (node.next == null) {
+                            node.next = new Node<>(hash, key, value, null);
+                            break;
+                        }
+                        node = node.next;
+                    }
+                }
+                if (found)
+                    return oldValue;
+                break;
+            }
+        }
+
+        count.increment();
+        if (count.sum() >= threshold)
+            resize(table);
+
+        return onlyIfAbsent ? null : value;
+    }
+
+    /** Return true if bin i of tab, or the bins it was moved to, holds value */
+    private boolean binContainsValue(AtomicReferenceArray<Node<K, V>> tab, int i, V value) {
+        Node<K, V> node = tab.get(i);
+        if (node != null && node.hash == MOVED) {
+            AtomicReferenceArray<Node<K, V>> next = ((ForwardingNode<K, V>) node).nextTable;
+            return binContainsValue(next, i, value) || binContainsValue(next, i + tab.length(), value);
+        }
+
+        for (; node != null; node = node.next) {
+            if (value.equals(node.value))
+                return true;
+        }
+        return false;
+    }
+
+    /** Pass every node of bin i of tab to action, following the bin if it has moved */
+    private void forEachNode(AtomicReferenceArray<Node<K, V>> tab, int i, Consumer<Node<K, V>> action) {
+        Node<K, V> node = tab.get(i);
+        if (node != null && node.hash == MOVED) {
+            AtomicReferenceArray<Node<K, V>> next = ((ForwardingNode<K, V>) node).nextTable;
+            forEachNode(next, i, action);
+            forEachNode(next, i + tab.length(), action);
+            return;
+        }
+
+        for (; node != null; node = node.next)
+            action.accept(node);
+    }
+
+    /** Help move bins for the resize that installed the forwarding node,
+     * then return the table the caller should retry on */
+    private AtomicReferenceArray<Node<K, V>> helpTransfer(AtomicReferenceArray<Node<K, V>> tab,
+                                                          ForwardingNode<K, V> forward) {
+        resize(tab);
+        return forward.nextTable;
+    }
+
+    /** Start growing tab, or join a resize of tab that is already running.
+     * Returns once this thread can claim no more bins */
+    private void resize(AtomicReferenceArray<Node<K, V>> tab) {
+        AtomicReferenceArray<Node<K, V>> next;
+        synchronized (resizeLock) {
+            if (table != tab)
+                return; // tab has already been replaced
+
+            next = nextTable;
+            if (next == null) {
+                if (count.sum() < threshold || tab.length() >= MAX_CAPACITY)
+                    return; // Someone else finished the resize, or we cannot grow
+
+                next = new AtomicReferenceArray<>(tab.length() << 1);
+                transferIndex.set(tab.length());
+                nextTable = next;
+            }
+            resizers++;
+        }
+
+        transfer(tab, next);
+
+        synchronized (resizeLock) {
+            // The last thread out publishes the new table. Every bin has been
+            // claimed, and every claimed range belonged to a thread counted in resizers
+            if (--resizers == 0 && nextTable == next) {
+                table = next;
+                nextTable = null;
+                threshold = (int) (next.length() * loadFactorThreshold);
+            }
+        }
+    }
+
+    /** Claim ranges of bins of tab and move them into next until none are left */
+    private void transfer(AtomicReferenceArray<Node<K, V>> tab, AtomicReferenceArray<Node<K, V>> next) {
+        int n = tab.length();
+        int stride = NCPU > 1 ? (n >>> 3) / NCPU : n;
+        if (stride < MIN_TRANSFER_STRIDE)
+            stride = MIN_TRANSFER_STRIDE;
+
+        ForwardingNode<K, V> forward = new ForwardingNode<>(next);
+        while (true) {
+            // Claim the bins [bound, end) from the top of the unclaimed range
+            int end = transferIndex.get();
+            if (end <= 0)
+                return;
+            int bound = Math.max(end - stride, 0);
+            if (!transferIndex.compareAndSet(end, bound))
+                continue;
+
+            for (int i = end - 1; i >= bound; i--)
+                transferBin(tab, next, i, forward);
+        }
+    }
+
+    /** Split bin i of tab into bins i and i + n of next, then leave a forwarding node behind.
+     * Readers may still be walking the old bin without a lock, so no node of
+     * it may get a different next link. The tail of the chain whose nodes all
+     * go to the same new bin keeps its links and is moved as it is; only the
+     * nodes in front of it are copied */
+    private void transferBin(AtomicReferenceArray<Node<K, V>> tab, AtomicReferenceArray<Node<K, V>> next,
+                             int i, ForwardingNode<K, V> forward) {
+        int n = tab.length();
+        while (true) {
+            Node<K, V> first = tab.get(i);
+            if (first == null) {
+                if (tab.compareAndSet(i, null, forward))
+                    return;
+                continue; // A writer filled the bin, move it under its lock
+            }
+
+            synchronized (first) {
+                if (tab.get(i) != first)
+                    continue;
+
+                // Find lastRun, the start of the tail that goes to one side
+                Node<K, V> lastRun = first;
+                int runBit = first.hash & n;
+                for (Node<K, V> node = first.next; node != null; node = node.next) {
+                    int bit = node.hash & n;
+                    if (bit != runBit) {
+                        runBit = bit;
+                        lastRun = node;
+                    }
+                }
+
+                Node<K, V> low = runBit == 0 ? lastRun : null;
+                Node<K, V> high = runBit == 0 ? null : lastRun;
+                for (Node<K, V> node = first; node != lastRun; node = node.next) {
+                    if ((node.hash & n) == 0)
+                        low = new Node<>(node.hash, node.key, node.value, low);
+                    else
+                        high = new Node<>(node.hash, node.key, node.value, high);
+                }
+                next.set(i, low);
+                next.set(i + n, high);
+                tab.set(i, forward);
+                return;
+            }
+        }
+    }
+
+    /** Ensure the hashing is evenly distributed and never negative */
+    private static int spread(int h) {
+        h ^= (h >>> 20) ^ (h >>> 12);
+        return (h ^ (h >>> 7) ^ (h >>> 4)) & 0x7fffffff;
+    }
+
+    /** Return a power of 2 for initialCapacity */
+    private int trimToPowerOf2(int initialCapacity) {
+        int capacity = 1;
+        while (capacity < initialCapacity) {
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+
+        for (MyMap.Entry<K, V> entry: entrySet())
+            builder.append(entry);
+
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -10,8 +10,6 @@
 
 package hashmap;
 
-import java.util.LinkedList;
-
 public class HashMap<K,V> {
 
     // Define the default hash-table size. Must be a power of 2
@@ -20,6 +18,17 @@ public class HashMap<K,V> {
     // Define the maximum hash-table size. 1 << 30 is same as 2^30
     private static int MAX_CAPACITY = 1 << 30;
 
+    // Number of old buckets moved into the new table by each write during an incremental rehash
+    private static int INCREMENTAL_REHASH_STEP = 8;
+
+    // A bucket turns into a balanced tree once it holds this many entries,
+    // and back into a plain chain once it shrinks to UNTREEIFY_THRESHOLD
+    private static int TREEIFY_THRESHOLD = 8;
+    private static int UNTREEIFY_THRESHOLD = 6;
+
+    // Below this capacity a long bucket doubles the table instead of turning into a tree
+    private static int MIN_TREEIFY_CAPACITY = 64;
+
     // Current hash-table capacity. Capacity is a power of 2
     private int capacity;
 
@@ -32,14 +41,25 @@ public class HashMap<K,V> {
     // The number of entries in the map
     private int size = 0;
 
+    // When true the table grows a few buckets at a time instead of all at once
+    private boolean incrementalRehash;
+
     /** Define an inner class for Entry */
     public static class Entry<K,V> {
+        final int hash; // supplemental hash of the key, kept so a resize never calls hashCode
         K key;
         V value;
+        Entry<K,V> next; // next entry in the same bucket
 
         public Entry(K key, V value){
+            this(supplementalHash(key.hashCode()), key, value, null);
+        }
+
+        Entry(int hash, K key, V value, Entry<K,V> next){
+            this.hash = hash;
             this.key = key;
             this.value = value;
+            this.next = next;
         }
 
         public K getKey(){
@@ -56,8 +76,270 @@ public class HashMap<K,V> {
         }
     }
 
-    // Hash-map is an array with each cell being a linked list
-    LinkedList<Entry<K,V>>[] table;
+    /** An entry of a bucket that has been turned into an AVL tree. The tree is
+     * ordered by hash, then by compareTo for keys of the same Comparable class,
+     * then by an arbitrary but fixed tie-break. The entries of the bucket are
+     * still linked through next (and prev), so everything that only walks a
+     * bucket works the same on trees. The root is found through parent links */
+    static class TreeEntry<K,V> extends Entry<K,V> {
+        TreeEntry<K,V> parent;
+        TreeEntry<K,V> left;
+        TreeEntry<K,V> right;
+        TreeEntry<K,V> prev; // previous entry in the bucket
+        int height = 1;
+
+        TreeEntry(int hash, K key, V value, Entry<K,V> next){
+            super(hash, key, value, next);
+        }
+
+        /** Return the root of the tree holding this entry */
+        TreeEntry<K,V> root(){
+            TreeEntry<K,V> root = this;
+            while (root.parent != null)
+                root = root.parent;
+            return root;
+        }
+
+        /** Return the entry for key in the tree rooted at this entry, or null */
+        TreeEntry<K,V> find(int hash, Object key){
+            TreeEntry<K,V> p = this;
+            do {
+                TreeEntry<K,V> pl = p.left, pr = p.right;
+                int dir;
+                if (p.hash > hash)
+                    p = pl;
+                else if (p.hash < hash)
+                    p = pr;
+                else if (p.key == key || key.equals(p.key))
+                    return p;
+                else if (pl == null)
+                    p = pr;
+                else if (pr == null)
+                    p = pl;
+                else if ((dir = compareComparables(key, p.key)) != 0)
+                    p = dir < 0 ? pl : pr;
+                else {
+                    // Equal hashes and nothing else to go by: search both subtrees
+                    TreeEntry<K,V> q = pr.find(hash, key);
+                    if (q != null)
+                        return q;
+                    p = pl;
+                }
+            } while (p != null);
+
+            return null;
+        }
+
+        /** Return compareTo of two keys of the same class C that implements
+         * Comparable<C>, 0 otherwise. An exception thrown by compareTo is
+         * passed on, since the check guarantees the call itself is well typed */
+        static int compareComparables(Object a, Object b){
+            if (b == null || a.getClass() != b.getClass() || !isSelfComparable(a.getClass()))
+                return 0;
+            @SuppressWarnings("unchecked")
+            Comparable<Object> comparable = (Comparable<Object>) a;
+            return comparable.compareTo(b);
+        }
+
+        /** Return true if c declares that it implements Comparable<c> */
+        static boolean isSelfComparable(Class<?> c){
+            if (c == String.class) // the common case, no need to look at its interfaces
+                return true;
+            for (java.lang.reflect.Type type : c.getGenericInterfaces()) {
+                if (type instanceof java.lang.reflect.ParameterizedType) {
+                    java.lang.reflect.ParameterizedType p = (java.lang.reflect.ParameterizedType) type;
+                    java.lang.reflect.Type[] args = p.getActualTypeArguments();
+                    if (p.getRawType() == Comparable.class && args.length == 1 && args[0] == c)
+                        return true;
+                }
+            }
+            return false;
+        }
+
+        /** Order of two distinct entries in the tree; never 0 */
+        static int compareForTree(Entry<?,?> a, Entry<?,?> b){
+            if (a.hash != b.hash)
+                return a.hash < b.hash ? -1 : 1;
+
+            int dir = compareComparables(a.key, b.key);
+            if (dir != 0)
+                return dir;
+
+            // Tie-break: class name first, so all keys of one class stay together, then identity
+            dir = a.key.getClass().getName().compareTo(b.key.getClass().getName());
+            if (dir != 0)
+                return dir;
+            return System.identityHashCode(a.key) <= System.identityHashCode(b.key) ? -1 : 1;
+        }
+
+        /** Insert x into the tree with the given root (null for an empty tree). Return the new root */
+        static <K,V> TreeEntry<K,V> insert(TreeEntry<K,V> root, TreeEntry<K,V> x){
+            x.left = x.right = null;
+            x.height = 1;
+            if (root == null) {
+                x.parent = null;
+                return x;
+            }
+
+            // locate the parent node
+            TreeEntry<K,V> parent = root;
+            while (true) {
+                TreeEntry<K,V> child = compareForTree(x, parent) < 0 ? parent.left : parent.right;
+                if (child == null)
+                    break;
+                parent = child;
+            }
+
+            x.parent = parent;
+            if (compareForTree(x, parent) < 0)
+                parent.left = x;
+            else
+                parent.right = x;
+
+            return rebalanceUp(parent);
+        }
+
+        /** Remove node from its tree. Return the new root, or null if the tree is now empty */
+        static <K,V> TreeEntry<K,V> delete(TreeEntry<K,V> node){
+            TreeEntry<K,V> fixFrom;
+            if (node.left != null && node.right != null) {
+                // Put the leftmost node of the right subtree in node's place
+                TreeEntry<K,V> successor = node.right;
+                while (successor.left != null)
+                    successor = successor.left;
+
+                if (successor.parent != node) {
+                    fixFrom = successor.parent;
+                    fixFrom.left = successor.right;
+                    if (successor.right != null)
+                        successor.right.parent = fixFrom;
+                    successor.right = node.right;
+                    node.right.parent = successor;
+                }
+                else
+                    fixFrom = successor;
+
+                successor.left = node.left;
+                node.left.parent = successor;
+                replaceChild(node.parent, node, successor);
+            }
+            else {
+                TreeEntry<K,V> child = node.left != null ? node.left : node.right;
+                replaceChild(node.parent, node, child);
+                fixFrom = node.parent;
+                if (fixFrom == null) {
+                    node.left = node.right = null;
+                    return child; // node was the root, its only child takes over
+                }
+            }
+
+            node.parent = node.left = node.right = null;
+            return rebalanceUp(fixFrom);
+        }
+
+        /** Link child where node used to hang below parent */
+        private static <K,V> void replaceChild(TreeEntry<K,V> parent, TreeEntry<K,V> node, TreeEntry<K,V> child){
+            if (child != null)
+                child.parent = parent;
+            if (parent != null) {
+                if (parent.left == node)
+                    parent.left = child;
+                else
+                    parent.right = child;
+            }
+        }
+
+        /** Fix heights and balance from node up to the root. Return the root */
+        private static <K,V> TreeEntry<K,V> rebalanceUp(TreeEntry<K,V> node){
+            TreeEntry<K,V> top = node;
+            for (TreeEntry<K,V> p = node; p != null; p = p.parent)
+                top = p = rebalance(p);
+            return top;
+        }
+
+        /** Restore the AVL property at node. Return the root of its subtree */
+        private static <K,V> TreeEntry<K,V> rebalance(TreeEntry<K,V> node){
+            int balance = height(node.left) - height(node.right);
+            if (balance > 1) {
+                if (height(node.left.left) < height(node.left.right))
+                    rotateLeft(node.left);
+                return rotateRight(node);
+            }
+            if (balance < -1) {
+                if (height(node.right.right) < height(node.right.left))
+                    rotateRight(node.right);
+                return rotateLeft(node);
+            }
+            updateHeight(node);
+            return node;
+        }
+
+        private static <K,V> TreeEntry<K,V> rotateLeft(TreeEntry<K,V> node){
+            TreeEntry<K,V> r = node.right;
+            node.right = r.left;
+            if (r.left != null)
+                r.left.parent = node;
+            replaceChild(node.parent, node, r);
+            r.left = node;
+            node.parent = r;
+            updateHeight(node);
+            updateHeight(r);
+            return r;
+        }
+
+        private static <K,V> TreeEntry<K,V> rotateRight(TreeEntry<K,V> node){
+            TreeEntry<K,V> l = node.left;
+            node.left = l.right;
+            if (l.right != null)
+                l.right.parent = node;
+            replaceChild(node.parent, node, l);
+            l.right = node;
+            node.parent = l;
+            updateHeight(node);
+            updateHeight(l);
+            return l;
+        }
+
+        private static int height(TreeEntry<?,?> node){
+            return node == null ? 0 : node.height;
+        }
+
+        private static void updateHeight(TreeEntry<?,?> node){
+            node.height = 1 + Math.max(height(node.left), height(node.right));
+        }
+
+        /** Build a tree out of the bucket starting at first, keeping the bucket order */
+        static <K,V> void treeify(TreeEntry<K,V> first){
+            TreeEntry<K,V> root = null;
+            for (Entry<K,V> entry = first; entry != null; entry = entry.next)
+                root = insert(root, (TreeEntry<K,V>) entry);
+        }
+
+        /** Return a plain chain with the entries of the tree bucket starting at first */
+        static <K,V> Entry<K,V> untreeify(Entry<K,V> first){
+            Entry<K,V> head = null, tail = null;
+            for (Entry<K,V> entry = first; entry != null; entry = entry.next) {
+                Entry<K,V> plain = new Entry<>(entry.hash, entry.key, entry.value, null);
+                if (tail == null)
+                    head = plain;
+                else
+                    tail.next = plain;
+                tail = plain;
+            }
+            return head;
+        }
+    }
+
+    // Hash-map is an array with each cell being the head of a chain of entries
+    Entry<K,V>[] table;
+
+    // The table being drained during an incremental rehash, otherwise null.
+    // Buckets below transferIndex have already been moved into table
+    private Entry<K,V>[] oldTable;
+    private int transferIndex;
+
+    // Counts changes to the set of entries so iterators can detect them
+    private int modCount = 0;
 
     /** Construct a map with the default capacity and load factor */
     public HashMap() {
@@ -72,70 +354,57 @@ public class HashMap<K,V> {
 
     /** Construct a map with the specified initial capacity and load factor */
     public HashMap(int initialCapacity, float loadFactorThreshold) {
+        this(initialCapacity, loadFactorThreshold, false);
+    }
+
+    /** Construct a map with the specified initial capacity and load factor.
+     * With incrementalRehash each write moves only a few buckets of an
+     * in-progress resize, so no single put pays for copying the whole table */
+    public HashMap(int initialCapacity, float loadFactorThreshold, boolean incrementalRehash) {
         if (initialCapacity > MAX_CAPACITY)
             this.capacity = MAX_CAPACITY;
         else
             this.capacity = trimToPowerOf2(initialCapacity);
 
         this.loadFactorThreshold = loadFactorThreshold;
-        table = new LinkedList[capacity];
+        this.incrementalRehash = incrementalRehash;
+        table = newTable(capacity);
     }
 
     /** remove all entries from this map */
     public void clear() {
+        modCount++;
         size = 0;
         removeEntries();
     }
 
     /** Return true if the specified key is in the map */
     public boolean containsKey(K key) {
-        if (get(key) != null)
-            return true;
-        else
-            return false;
+        return getEntry(supplementalHash(key.hashCode()), key) != null;
     }
 
     /** Return true if this map contains the value */
     public boolean containsValue(V value) {
-        for (int i = 0; i < capacity; i++){
-            if (table[i] != null) {
-                LinkedList<Entry<K,V>> bucket = table[i];
-                for (Entry<K,V> entry: bucket) {
-                    if (entry.getValue().equals(value))
-                        return true;
-                }
+        finishRehash();
+        for (int i = 0; i < capacity; i++) {
+            for (Entry<K,V> entry = table[i]; entry != null; entry = entry.next) {
+                if (java.util.Objects.equals(entry.getValue(), value))
+                    return true;
             }
         }
         return false;
     }
 
-    /** Return a set of entries in the map */
+    /** Return a set view of the entries in the map. The view is backed by
+     * the map, so it reflects later changes and copies nothing */
     public java.util.Set<HashMap.Entry<K,V>> entrySet() {
-        java.util.Set<HashMap.Entry<K, V>> set =
-                new java.util.HashSet<>();
-
-        for (int i = 0; i < capacity; i++) {
-            if (table[i] != null) {
-                LinkedList<Entry<K, V>> bucket = table[i];
-                for (Entry<K, V> entry: bucket)
-                    set.add(entry);
-            }
-        }
-
-        return set;
+        return new EntrySet();
     }
 
     /** Return the value that matches the specified key */
     public V get(K key) {
-        int bucketIndex = hash(key.hashCode());
-        if (table[bucketIndex] != null) {
-            LinkedList<Entry<K, V>> bucket = table[bucketIndex];
-            for (Entry<K, V> entry: bucket)
-                if (entry.getKey().equals(key))
-                    return entry.getValue();
-        }
-
-        return null;
+        Entry<K, V> entry = getEntry(supplementalHash(key.hashCode()), key);
+        return entry == null ? null : entry.getValue();
     }
 
      /** Return true if this map contains no entries */
@@ -143,72 +412,155 @@ public class HashMap<K,V> {
         return size == 0;
     }
 
-     /** Return a set consisting of the keys in this map */
+     /** Return a set view of the keys in this map */
     public java.util.Set<K> keySet() {
-        java.util.Set<K> set = new java.util.HashSet<K>();
+        return new KeySet();
+    }
 
-        for (int i = 0; i < capacity; i++) {
-            if (table[i] != null) {
-                LinkedList<Entry<K, V>> bucket = table[i];
-                for (Entry<K, V> entry: bucket)
-                    set.add(entry.getKey());
-            }
+    /** Add an entry (key, value) into the map */
+    public V put(K key, V value) {
+        // Hash once and scan the bucket once; a miss goes straight to the append
+        int hash = supplementalHash(key.hashCode());
+        Entry<K, V> entry = getEntry(hash, key);
+        if (entry != null) { // The key is already in the map
+            V oldValue = entry.value;
+            // Replace old value with new value
+            entry.value = value;
+            // Return the old value for the key
+            return oldValue;
         }
 
-        return set;
+        addEntry(hash, key, value);
+        return value;
     }
 
-    /** Add an entry (key, value) into the map */
-    public V put(K key, V value) {
-        if (get(key) != null) { // The key is already in the map
-            int bucketIndex = hash(key.hashCode());
-            LinkedList<Entry<K, V>> bucket = table[bucketIndex];
-            for (Entry<K, V> entry: bucket)
-                if (entry.getKey().equals(key)) {
-                    V oldValue = entry.getValue();
-                    // Replace old value with new value
-                    entry.value = value;
-                    // Return the old value for the key
-                    return oldValue;
-                }
+    /** Add (key, value) only if the key has no value yet.
+     * Return the value already in the map, or null if value was stored */
+    public V putIfAbsent(K key, V value) {
+        int hash = supplementalHash(key.hashCode());
+        Entry<K, V> entry = getEntry(hash, key);
+        if (entry == null) {
+            addEntry(hash, key, value);
+            return null;
         }
 
-        // Check load factor
-        if (size >= capacity * loadFactorThreshold) {
-            if (capacity == MAX_CAPACITY)
-                throw new RuntimeException("Exceeding maximum capacity");
+        V oldValue = entry.value;
+        if (oldValue == null)
+            entry.value = value;
+        return oldValue;
+    }
 
-            rehash();
+    /** If the key has no value yet, store the value computed from the key.
+     * Return the current (existing or computed) value */
+    public V computeIfAbsent(K key,
+            java.util.function.Function<? super K, ? extends V> mappingFunction) {
+        int hash = supplementalHash(key.hashCode());
+        Entry<K, V> entry = getEntry(hash, key);
+        if (entry != null && entry.value != null)
+            return entry.value;
+
+        V newValue = mappingFunction.apply(key);
+        if (newValue != null) {
+            if (entry != null)
+                entry.value = newValue;
+            else
+                addEntry(hash, key, newValue);
         }
+        return newValue;
+    }
+
+    /** If the key has a value, replace it with the value computed from the key
+     * and the old value. A null result removes the entry. Return the new value */
+    public V computeIfPresent(K key,
+            java.util.function.BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int hash = supplementalHash(key.hashCode());
+        Entry<K, V> entry = getEntry(hash, key);
+        if (entry == null || entry.value == null)
+            return null;
+
+        V newValue = remappingFunction.apply(key, entry.value);
+        if (newValue == null)
+            removeEntry(hash, entry);
+        else
+            entry.value = newValue;
+        return newValue;
+    }
 
-        int bucketIndex = hash(key.hashCode());
+    /** Store the value computed from the key and its current value (null if
+     * there is none). A null result removes the entry. Return the new value */
+    public V compute(K key,
+            java.util.function.BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int hash = supplementalHash(key.hashCode());
+        Entry<K, V> entry = getEntry(hash, key);
+        V oldValue = entry == null ? null : entry.value;
 
-        // Create a linked list for the bucket if it is not created
-        if (table[bucketIndex] == null) {
-            table[bucketIndex] = new LinkedList<Entry<K, V>>();
+        V newValue = remappingFunction.apply(key, oldValue);
+        if (newValue == null) {
+            if (entry != null)
+                removeEntry(hash, entry);
         }
+        else if (entry != null)
+            entry.value = newValue;
+        else
+            addEntry(hash, key, newValue);
+        return newValue;
+    }
 
-        // Add a new entry (key, value) to hashTable[index]
-        table[bucketIndex].add(new HashMap.Entry<K, V>(key, value));
+    /** Store value if the key has no value yet, otherwise combine the old value
+     * with value. A null result removes the entry. Return the new value */
+    public V merge(K key, V value,
+            java.util.function.BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (value == null)
+            throw new NullPointerException("merge value is null");
 
-        size++; // Increase size
+        int hash = supplementalHash(key.hashCode());
+        Entry<K, V> entry = getEntry(hash, key);
+        if (entry == null) {
+            addEntry(hash, key, value);
+            return value;
+        }
+        if (entry.value == null) {
+            entry.value = value;
+            return value;
+        }
 
-        return value;
+        V newValue = remappingFunction.apply(entry.value, value);
+        if (newValue == null)
+            removeEntry(hash, entry);
+        else
+            entry.value = newValue;
+        return newValue;
     }
 
      /** Remove the entries for the specified key */
     public void remove(K key) {
-        int bucketIndex = hash(key.hashCode());
-
-        // Remove the first entry that matches the key from a bucket
-        if (table[bucketIndex] != null) {
-            LinkedList<Entry<K, V>> bucket = table[bucketIndex];
-            for (Entry<K, V> entry: bucket)
-                if (entry.getKey().equals(key)) {
-                    bucket.remove(entry);
-                    size--; // Decrease size
-                    break; // Remove just one entry that matches the key
-                }
+        int hash = supplementalHash(key.hashCode());
+        if (oldTable != null)
+            rehashStep();
+
+        Entry<K, V>[] bucketTable = tableFor(hash);
+        int bucketIndex = hash & (bucketTable.length - 1);
+
+        if (bucketTable[bucketIndex] instanceof TreeEntry) {
+            TreeEntry<K, V> node = ((TreeEntry<K, V>) bucketTable[bucketIndex]).root().find(hash, key);
+            if (node != null)
+                removeTreeEntry(bucketTable, bucketIndex, node, true);
+            return;
+        }
+
+        // Unlink the first entry that matches the key from its bucket
+        Entry<K, V> previous = null;
+        for (Entry<K, V> entry = bucketTable[bucketIndex]; entry != null; entry = entry.next) {
+            if (entry.hash == hash && entry.getKey().equals(key)) {
+                if (previous == null)
+                    bucketTable[bucketIndex] = entry.next;
+                else
+                    previous.next = entry.next;
+                size--; // Decrease size
+                modCount++;
+                break; // Remove just one entry that matches the key
+            }
+            previous = entry;
         }
     }
 
@@ -217,24 +569,217 @@ public class HashMap<K,V> {
         return size;
     }
 
-     /** Return a set consisting of the values in this map */
-    public java.util.Set<V> values() {
-        java.util.Set<V> set = new java.util.HashSet<>();
+     /** Return a collection view of the values in this map. Unlike a set it
+     * keeps duplicate values, one per entry */
+    public java.util.Collection<V> values() {
+        return new Values();
+    }
 
+    /** Pass every (key, value) pair of the map to action, walking the table in place */
+    public void forEach(java.util.function.BiConsumer<? super K, ? super V> action) {
+        finishRehash();
+        int expectedModCount = modCount;
         for (int i = 0; i < capacity; i++) {
-            if (table[i] != null) {
-                LinkedList<Entry<K, V>> bucket = table[i];
-                for (Entry<K, V> entry: bucket)
-                    set.add(entry.getValue());
-            }
+            for (Entry<K, V> entry = table[i]; entry != null; entry = entry.next)
+                action.accept(entry.key, entry.value);
         }
 
-        return set;
+        if (modCount != expectedModCount)
+            throw new java.util.ConcurrentModificationException();
+    }
+
+    /** Parallel version of forEach. The buckets are split into ranges that
+     * run as fork-join tasks in the common pool until a range holds about
+     * parallelismThreshold entries; a map smaller than that runs on the
+     * calling thread (use Long.MAX_VALUE to never fork). The map must not
+     * change while the action runs */
+    public void forEach(long parallelismThreshold,
+                        java.util.function.BiConsumer<? super K, ? super V> action) {
+        finishRehash();
+        java.util.concurrent.ForkJoinPool.commonPool().invoke(
+                new ForEachTask<K, V>(table, 0, capacity, size, parallelismThreshold, action));
+    }
+
+    /** Combine all non-null values with reducer, in parallel as in forEach.
+     * Return null if there are none. The reducer must be associative */
+    public V reduceValues(long parallelismThreshold,
+                          java.util.function.BiFunction<? super V, ? super V, ? extends V> reducer) {
+        finishRehash();
+        return java.util.concurrent.ForkJoinPool.commonPool().invoke(
+                new ReduceValuesTask<K, V>(table, 0, capacity, size, parallelismThreshold, reducer));
     }
 
-    /** Hash function */
-    private int hash(int hashCode) {
-        return supplementalHash(hashCode) & (capacity - 1);
+    /** Return a non-null result of searchFunction for some entry, or null if
+     * it returns null for all of them. Runs in parallel as in forEach, and
+     * all tasks stop as soon as one of them finds a result */
+    public <U> U search(long parallelismThreshold,
+                        java.util.function.BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        finishRehash();
+        java.util.concurrent.atomic.AtomicReference<U> result = new java.util.concurrent.atomic.AtomicReference<>();
+        java.util.concurrent.ForkJoinPool.commonPool().invoke(
+                new SearchTask<K, V, U>(table, 0, capacity, size, parallelismThreshold, searchFunction, result));
+        return result.get();
+    }
+
+    /** Parallel version of containsValue, see search */
+    public boolean containsValue(long parallelismThreshold, V value) {
+        return search(parallelismThreshold,
+                (key, v) -> java.util.Objects.equals(v, value) ? Boolean.TRUE : null) != null;
+    }
+
+    /** Return a spliterator over the entries that splits the bucket array by index ranges */
+    public java.util.Spliterator<Entry<K, V>> spliterator() {
+        finishRehash();
+        return new EntrySpliterator<K, V>(table, 0, capacity, size);
+    }
+
+    /** Return a cursor positioned before the first entry. A cursor walks the
+     * table directly and hands out keys and values without creating any
+     * object per entry:
+     *   for (HashMap<K,V>.Cursor c = map.cursor(); c.advance(); ) use(c.getKey(), c.getValue()); */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /** Return the entry for key from the bucket selected by hash, or null */
+    private Entry<K, V> getEntry(int hash, K key) {
+        Entry<K, V>[] bucketTable = tableFor(hash);
+        Entry<K, V> first = bucketTable[hash & (bucketTable.length - 1)];
+        if (first instanceof TreeEntry)
+            return ((TreeEntry<K, V>) first).root().find(hash, key);
+
+        for (Entry<K, V> entry = first; entry != null; entry = entry.next) {
+            if (entry.hash == hash && entry.getKey().equals(key))
+                return entry;
+        }
+
+        return null;
+    }
+
+    /** Append a new entry for a key that is known not to be in the map */
+    private void addEntry(int hash, K key, V value) {
+        if (oldTable != null)
+            rehashStep();
+
+        // Check load factor
+        if (size >= capacity * loadFactorThreshold) {
+            if (capacity == MAX_CAPACITY)
+                throw new RuntimeException("Exceeding maximum capacity");
+
+            rehash();
+        }
+
+        Entry<K, V>[] bucketTable = tableFor(hash);
+        int bucketIndex = hash & (bucketTable.length - 1);
+        Entry<K, V> first = bucketTable[bucketIndex];
+
+        size++; // Increase size
+        modCount++;
+
+        if (first instanceof TreeEntry) {
+            // Link the new entry behind the first one of the bucket and add it to the tree
+            TreeEntry<K, V> head = (TreeEntry<K, V>) first;
+            TreeEntry<K, V> entry = new TreeEntry<K, V>(hash, key, value, head.next);
+            if (head.next != null)
+                ((TreeEntry<K, V>) head.next).prev = entry;
+            head.next = entry;
+            entry.prev = head;
+            TreeEntry.insert(head.root(), entry);
+        }
+        else {
+            // Link a new entry (key, value) in front of the bucket
+            bucketTable[bucketIndex] = new Entry<K, V>(hash, key, value, first);
+            if (bucketLength(first, TREEIFY_THRESHOLD) + 1 >= TREEIFY_THRESHOLD)
+                treeifyBucket(bucketTable, bucketIndex);
+        }
+    }
+
+    /** Return the number of entries in the bucket starting at first, counting at most limit */
+    private static int bucketLength(Entry<?, ?> first, int limit) {
+        int length = 0;
+        for (Entry<?, ?> entry = first; entry != null && length < limit; entry = entry.next)
+            length++;
+        return length;
+    }
+
+    /** Turn a bucket that grew too long into a tree, or grow a small table instead */
+    private void treeifyBucket(Entry<K, V>[] bucketTable, int bucketIndex) {
+        if (capacity < MIN_TREEIFY_CAPACITY) {
+            rehash();
+            return;
+        }
+
+        TreeEntry<K, V> head = null, tail = null;
+        for (Entry<K, V> entry = bucketTable[bucketIndex]; entry != null; entry = entry.next) {
+            TreeEntry<K, V> node = new TreeEntry<K, V>(entry.hash, entry.key, entry.value, null);
+            node.prev = tail;
+            if (tail == null)
+                head = node;
+            else
+                tail.next = node;
+            tail = node;
+        }
+
+        TreeEntry.treeify(head);
+        bucketTable[bucketIndex] = head;
+    }
+
+    /** Unlink node from its tree bucket. Unless this happens during an
+     * iteration, a bucket that has become short turns back into a chain */
+    private void removeTreeEntry(Entry<K, V>[] bucketTable, int bucketIndex, TreeEntry<K, V> node,
+                                 boolean canUntreeify) {
+        if (node.prev == null)
+            bucketTable[bucketIndex] = node.next;
+        else
+            node.prev.next = node.next;
+        if (node.next != null)
+            ((TreeEntry<K, V>) node.next).prev = node.prev;
+
+        TreeEntry.delete(node);
+
+        if (canUntreeify && bucketLength(bucketTable[bucketIndex], UNTREEIFY_THRESHOLD + 1) <= UNTREEIFY_THRESHOLD)
+            bucketTable[bucketIndex] = TreeEntry.untreeify(bucketTable[bucketIndex]);
+
+        size--; // Decrease size
+        modCount++;
+    }
+
+    /** Unlink an entry previously returned by getEntry */
+    private void removeEntry(int hash, Entry<K, V> target) {
+        removeEntry(hash, target, true);
+    }
+
+    /** Unlink an entry. Iterators pass false for canUntreeify so that the
+     * entries they are about to visit are not replaced */
+    private void removeEntry(int hash, Entry<K, V> target, boolean canUntreeify) {
+        Entry<K, V>[] bucketTable = tableFor(hash);
+        int bucketIndex = hash & (bucketTable.length - 1);
+        if (bucketTable[bucketIndex] instanceof TreeEntry) {
+            removeTreeEntry(bucketTable, bucketIndex, (TreeEntry<K, V>) target, canUntreeify);
+            return;
+        }
+
+        Entry<K, V> previous = null;
+        for (Entry<K, V> entry = bucketTable[bucketIndex]; entry != null; entry = entry.next) {
+            if (entry == target) {
+                if (previous == null)
+                    bucketTable[bucketIndex] = entry.next;
+                else
+                    previous.next = entry.next;
+                size--; // Decrease size
+                modCount++;
+                return;
+            }
+            previous = entry;
+        }
+    }
+
+    /** Return the table that currently holds the bucket for hash. While an
+     * incremental rehash is running, buckets not yet moved stay in oldTable */
+    private Entry<K, V>[] tableFor(int hash) {
+        if (oldTable != null && (hash & (oldTable.length - 1)) >= transferIndex)
+            return oldTable;
+        return table;
     }
 
     /** Ensure the hashing is evenly distributed */
@@ -255,22 +800,511 @@ public class HashMap<K,V> {
 
     /** Remove all entries from each bucket */
     private void removeEntries() {
-        for (int i = 0; i < capacity; i++) {
-            if (table[i] != null) {
-                table[i].clear();
-            }
-        }
+        oldTable = null;
+        java.util.Arrays.fill(table, null);
     }
 
-    /** Rehash the map */
+    /** Return an empty bucket array. Generic arrays cannot be created
+     * directly, so an Entry<?, ?>[] is cast once here */
+    @SuppressWarnings("unchecked")
+    private static <K, V> Entry<K, V>[] newTable(int capacity) {
+        return (Entry<K, V>[]) new Entry<?, ?>[capacity];
+    }
+
+    /** Rehash the map into a table twice as large. Without incremental
+     * rehashing every bucket is moved now; otherwise the move is only started */
     private void rehash() {
-        java.util.Set<Entry<K, V>> set = entrySet(); // Get entries
+        finishRehash(); // A previous incremental rehash must be complete first
+
+        Entry<K, V>[] old = table;
         capacity <<= 1; // Double capacity
-        table = new LinkedList[capacity]; // Create a new hash table
-        size = 0; // Reset size to 0
+        table = newTable(capacity); // Create a new hash table
+
+        if (incrementalRehash) {
+            oldTable = old;
+            transferIndex = 0;
+        }
+        else {
+            for (int i = 0; i < old.length; i++)
+                transferBucket(old, i);
+        }
+    }
+
+    /** Move the next few buckets of an incremental rehash */
+    private void rehashStep() {
+        int end = Math.min(transferIndex + INCREMENTAL_REHASH_STEP, oldTable.length);
+        while (transferIndex < end)
+            transferBucket(oldTable, transferIndex++);
 
-        for (Entry<K, V> entry: set) {
-            put(entry.getKey(), entry.getValue()); // Store to new table
+        if (transferIndex == oldTable.length)
+            oldTable = null; // Done, every bucket now lives in table
+    }
+
+    /** Move every remaining bucket of an incremental rehash */
+    private void finishRehash() {
+        if (oldTable != null) {
+            while (transferIndex < oldTable.length)
+                transferBucket(oldTable, transferIndex++);
+            oldTable = null;
+        }
+    }
+
+    /** Split bucket i of the old half-size table into buckets i and
+     * i + old.length of table. The entries are relinked, not copied, and
+     * keep their relative order */
+    private void transferBucket(Entry<K, V>[] old, int i) {
+        if (old[i] instanceof TreeEntry) {
+            transferTreeBucket(old, i);
+            return;
+        }
+
+        Entry<K, V> lowHead = null, lowTail = null;
+        Entry<K, V> highHead = null, highTail = null;
+
+        Entry<K, V> entry = old[i];
+        while (entry != null) {
+            Entry<K, V> next = entry.next;
+            entry.next = null;
+            // The one extra hash bit that the doubled mask looks at decides the half
+            if ((entry.hash & old.length) == 0) {
+                if (lowTail == null)
+                    lowHead = entry;
+                else
+                    lowTail.next = entry;
+                lowTail = entry;
+            }
+            else {
+                if (highTail == null)
+                    highHead = entry;
+                else
+                    highTail.next = entry;
+                highTail = entry;
+            }
+            entry = next;
+        }
+
+        old[i] = null;
+        table[i] = lowHead;
+        table[i + old.length] = highHead;
+    }
+
+    /** Split a tree bucket like transferBucket. A half that gets all the
+     * entries keeps its tree, a short half becomes a chain again and any
+     * other half is rebuilt into a tree of its own */
+    private void transferTreeBucket(Entry<K, V>[] old, int i) {
+        TreeEntry<K, V> lowHead = null, lowTail = null;
+        TreeEntry<K, V> highHead = null, highTail = null;
+        int lowCount = 0, highCount = 0;
+
+        for (Entry<K, V> entry = old[i]; entry != null; ) {
+            TreeEntry<K, V> node = (TreeEntry<K, V>) entry;
+            entry = entry.next;
+            node.next = null;
+            if ((node.hash & old.length) == 0) {
+                node.prev = lowTail;
+                if (lowTail == null)
+                    lowHead = node;
+                else
+                    lowTail.next = node;
+                lowTail = node;
+                lowCount++;
+            }
+            else {
+                node.prev = highTail;
+                if (highTail == null)
+                    highHead = node;
+                else
+                    highTail.next = node;
+                highTail = node;
+                highCount++;
+            }
+        }
+
+        old[i] = null;
+        table[i] = splitHalf(lowHead, lowCount, highCount);
+        table[i + old.length] = splitHalf(highHead, highCount, lowCount);
+    }
+
+    /** Return the bucket for one half of a split tree bucket */
+    private static <K, V> Entry<K, V> splitHalf(TreeEntry<K, V> head, int count, int otherCount) {
+        if (head == null)
+            return null;
+        if (count <= UNTREEIFY_THRESHOLD)
+            return TreeEntry.untreeify(head);
+        if (otherCount > 0)
+            TreeEntry.treeify(head); // Otherwise the old tree is still valid as it is
+        return head;
+    }
+
+    /** Walks the buckets of table in order. The map must not be changed
+     * during the walk except through remove */
+    private abstract class HashIterator {
+        Entry<K, V> next; // the entry to return next
+        Entry<K, V> current; // the entry returned last
+        int index; // the bucket after the one holding next
+        int expectedModCount;
+
+        HashIterator() {
+            finishRehash(); // Afterwards every entry lives in table
+            expectedModCount = modCount;
+            advanceBucket();
+        }
+
+        /** Move next to the head of the next non-empty bucket */
+        private void advanceBucket() {
+            while (next == null && index < capacity)
+                next = table[index++];
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        Entry<K, V> nextEntry() {
+            if (modCount != expectedModCount)
+                throw new java.util.ConcurrentModificationException();
+            if (next == null)
+                throw new java.util.NoSuchElementException();
+
+            current = next;
+            next = current.next;
+            advanceBucket();
+            return current;
+        }
+
+        public void remove() {
+            if (current == null)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new java.util.ConcurrentModificationException();
+
+            removeEntry(current.hash, current, false);
+            current = null;
+            expectedModCount = modCount;
+        }
+    }
+
+    private class EntryIterator extends HashIterator implements java.util.Iterator<Entry<K, V>> {
+        public Entry<K, V> next() {
+            return nextEntry();
+        }
+    }
+
+    private class KeyIterator extends HashIterator implements java.util.Iterator<K> {
+        public K next() {
+            return nextEntry().key;
+        }
+    }
+
+    private class ValueIterator extends HashIterator implements java.util.Iterator<V> {
+        public V next() {
+            return nextEntry().value;
+        }
+    }
+
+    /** Cursor over the entries of the map, see cursor() */
+    public class Cursor extends HashIterator {
+        /** Move to the next entry. Return false when there are no more */
+        public boolean advance() {
+            if (next == null)
+                return false;
+            nextEntry();
+            return true;
+        }
+
+        /** Return the key of the current entry */
+        public K getKey() {
+            checkCurrent();
+            return current.key;
+        }
+
+        /** Return the value of the current entry */
+        public V getValue() {
+            checkCurrent();
+            return current.value;
+        }
+
+        /** Replace the value of the current entry and return the old one */
+        public V setValue(V value) {
+            checkCurrent();
+            V oldValue = current.value;
+            current.value = value;
+            return oldValue;
+        }
+
+        private void checkCurrent() {
+            if (current == null)
+                throw new IllegalStateException();
+        }
+    }
+
+    /** Return the Object passed to a view's contains or remove as the type
+     * the map works with. The map only calls equals and hashCode on it (and
+     * reads the fields of an Entry it has checked for), so the unchecked
+     * cast can never fail later on */
+    @SuppressWarnings("unchecked")
+    private static <T> T viewArgument(Object o) {
+        return (T) o;
+    }
+
+    private class EntrySet extends java.util.AbstractSet<Entry<K, V>> {
+        public java.util.Iterator<Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+
+        public java.util.Spliterator<Entry<K, V>> spliterator() {
+            return HashMap.this.spliterator();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Entry))
+                return false;
+            Entry<K, V> entry = viewArgument(o);
+            // Entries compare by identity, as they always have
+            return getEntry(entry.hash, entry.key) == entry;
+        }
+
+        public boolean remove(Object o) {
+            if (!contains(o))
+                return false;
+            Entry<K, V> entry = viewArgument(o);
+            removeEntry(entry.hash, entry);
+            return true;
+        }
+
+        public void clear() {
+            HashMap.this.clear();
+        }
+    }
+
+    private class KeySet extends java.util.AbstractSet<K> {
+        public java.util.Iterator<K> iterator() {
+            return new KeyIterator();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean contains(Object o) {
+            return o != null && containsKey(viewArgument(o));
+        }
+
+        public boolean remove(Object o) {
+            if (o == null)
+                return false;
+            int oldSize = size;
+            HashMap.this.remove(viewArgument(o));
+            return size != oldSize;
+        }
+
+        public void clear() {
+            HashMap.this.clear();
+        }
+    }
+
+    private class Values extends java.util.AbstractCollection<V> {
+        public java.util.Iterator<V> iterator() {
+            return new ValueIterator();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean contains(Object o) {
+            return containsValue(viewArgument(o));
+        }
+
+        public void clear() {
+            HashMap.this.clear();
+        }
+    }
+
+    /** Splits the buckets [low, high) of tab in halves. The entry count of a
+     * range is estimated from its share of the buckets */
+    static class EntrySpliterator<K, V> implements java.util.Spliterator<Entry<K, V>> {
+        private final Entry<K, V>[] tab;
+        private int low; // next bucket to visit
+        private final int high;
+        private long estimate;
+        private Entry<K, V> next; // next entry of the bucket being visited
+
+        EntrySpliterator(Entry<K, V>[] tab, int low, int high, long estimate) {
+            this.tab = tab;
+            this.low = low;
+            this.high = high;
+            this.estimate = estimate;
+        }
+
+        public boolean tryAdvance(java.util.function.Consumer<? super Entry<K, V>> action) {
+            while (next == null && low < high)
+                next = tab[low++];
+            if (next == null)
+                return false;
+
+            Entry<K, V> entry = next;
+            next = entry.next;
+            action.accept(entry);
+            return true;
+        }
+
+        public void forEachRemaining(java.util.function.Consumer<? super Entry<K, V>> action) {
+            for (Entry<K, V> entry = next; entry != null; entry = entry.next)
+                action.accept(entry);
+            next = null;
+            for (; low < high; low++) {
+                for (Entry<K, V> entry = tab[low]; entry != null; entry = entry.next)
+                    action.accept(entry);
+            }
+        }
+
+        public java.util.Spliterator<Entry<K, V>> trySplit() {
+            int mid = (low + high) >>> 1;
+            if (next != null || mid <= low)
+                return null;
+
+            // Hand the lower half of the remaining buckets to the new spliterator
+            EntrySpliterator<K, V> prefix = new EntrySpliterator<>(tab, low, mid, estimate >>>= 1);
+            low = mid;
+            return prefix;
+        }
+
+        public long estimateSize() {
+            return estimate;
+        }
+
+        public int characteristics() {
+            return java.util.Spliterator.DISTINCT | java.util.Spliterator.NONNULL;
+        }
+    }
+
+    /** Return true if the buckets [low, high) of a map with the given size and
+     * capacity should be split further for the threshold */
+    private static boolean shouldSplit(int low, int high, int capacity, long size, long threshold) {
+        return high - low > 1 && size * (high - low) / capacity > threshold;
+    }
+
+    static class ForEachTask<K, V> extends java.util.concurrent.RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Entry<K, V>[] tab;
+        private final int low, high;
+        private final long size, threshold;
+        private final java.util.function.BiConsumer<? super K, ? super V> action;
+
+        ForEachTask(Entry<K, V>[] tab, int low, int high, long size, long threshold,
+                    java.util.function.BiConsumer<? super K, ? super V> action) {
+            this.tab = tab;
+            this.low = low;
+            this.high = high;
+            this.size = size;
+            this.threshold = threshold;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (shouldSplit(low, high, tab.length, size, threshold)) {
+                int mid = (low + high) >>> 1;
+                invokeAll(new ForEachTask<>(tab, low, mid, size, threshold, action),
+                        new ForEachTask<>(tab, mid, high, size, threshold, action));
+                return;
+            }
+
+            for (int i = low; i < high; i++) {
+                for (Entry<K, V> entry = tab[i]; entry != null; entry = entry.next)
+                    action.accept(entry.key, entry.value);
+            }
+        }
+    }
+
+    static class ReduceValuesTask<K, V> extends java.util.concurrent.RecursiveTask<V> {
+        private static final long serialVersionUID = 1L;
+
+        private final Entry<K, V>[] tab;
+        private final int low, high;
+        private final long size, threshold;
+        private final java.util.function.BiFunction<? super V, ? super V, ? extends V> reducer;
+
+        ReduceValuesTask(Entry<K, V>[] tab, int low, int high, long size, long threshold,
+                         java.util.function.BiFunction<? super V, ? super V, ? extends V> reducer) {
+            this.tab = tab;
+            this.low = low;
+            this.high = high;
+            this.size = size;
+            this.threshold = threshold;
+            this.reducer = reducer;
+        }
+
+        @Override
+        protected V compute() {
+            if (shouldSplit(low, high, tab.length, size, threshold)) {
+                int mid = (low + high) >>> 1;
+                ReduceValuesTask<K, V> left = new ReduceValuesTask<>(tab, low, mid, size, threshold, reducer);
+                left.fork();
+                V right = new ReduceValuesTask<>(tab, mid, high, size, threshold, reducer).compute();
+                return combine(left.join(), right);
+            }
+
+            V result = null;
+            for (int i = low; i < high; i++) {
+                for (Entry<K, V> entry = tab[i]; entry != null; entry = entry.next)
+                    result = combine(result, entry.value);
+            }
+            return result;
+        }
+
+        private V combine(V a, V b) {
+            if (a == null)
+                return b;
+            return b == null ? a : reducer.apply(a, b);
+        }
+    }
+
+    static class SearchTask<K, V, U> extends java.util.concurrent.RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Entry<K, V>[] tab;
+        private final int low, high;
+        private final long size, threshold;
+        private final java.util.function.BiFunction<? super K, ? super V, ? extends U> searchFunction;
+        private final java.util.concurrent.atomic.AtomicReference<U> result;
+
+        SearchTask(Entry<K, V>[] tab, int low, int high, long size, long threshold,
+                   java.util.function.BiFunction<? super K, ? super V, ? extends U> searchFunction,
+                   java.util.concurrent.atomic.AtomicReference<U> result) {
+            this.tab = tab;
+            this.low = low;
+            this.high = high;
+            this.size = size;
+            this.threshold = threshold;
+            this.searchFunction = searchFunction;
+            this.result = result;
+        }
+
+        @Override
+        protected void compute() {
+            if (shouldSplit(low, high, tab.length, size, threshold)) {
+                int mid = (low + high) >>> 1;
+                invokeAll(new SearchTask<>(tab, low, mid, size, threshold, searchFunction, result),
+                        new SearchTask<>(tab, mid, high, size, threshold, searchFunction, result));
+                return;
+            }
+
+            for (int i = low; i < high && result.get() == null; i++) {
+                for (Entry<K, V> entry = tab[i]; entry != null; entry = entry.next) {
+                    U found = searchFunction.apply(entry.key, entry.value);
+                    if (found != null) {
+                        result.compareAndSet(null, found);
+                        return;
+                    }
+                }
+            }
         }
     }
 
@@ -278,10 +1312,10 @@ public class HashMap<K,V> {
     public String toString() {
         StringBuilder builder = new StringBuilder("[");
 
+        finishRehash();
         for (int i = 0; i < capacity; i++) {
-            if (table[i] != null && table[i].size() > 0)
-                for (Entry<K, V> entry: table[i])
-                    builder.append(entry);
+            for (Entry<K, V> entry = table[i]; entry != null; entry = entry.next)
+                builder.append(entry);
         }
 
         builder.append("]");
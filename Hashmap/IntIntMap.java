@@ -0,0 +1,323 @@
+/* A hash map from int keys to int values. It offers the same operations as
+ * MyMap, but the keys and values live in two plain int arrays, so nothing is
+ * ever boxed, no Entry objects exist and hashing is a couple of arithmetic
+ * instructions instead of a virtual hashCode/equals call. Collisions are
+ * resolved with linear probing exactly like LinearProbingHashMap. Because
+ * an empty slot is marked with the key 0, the key 0 itself is kept in two
+ * separate fields.
+ * Changes here must be mirrored in LongObjectMap, the same map with long keys.
+ */
+
+package hashmap;
+
+public class IntIntMap {
+
+    // Define the default hash-table size. Must be a power of 2
+    private static int DEFAULT_INITIAL_CAPACITY = 4;
+
+    // Define the maximum hash-table size. 1 << 30 is same as 2^30
+    private static int MAX_CAPACITY = 1 << 30;
+
+    // Define the default load factor. Must stay below 1 so a probe always finds an empty slot
+    private static float DEFAULT_MAX_LOAD_FACTOR = 0.5f;
+
+    // Key that marks an empty slot
+    private static final int FREE_KEY = 0;
+
+    /** Receives each (key, value) pair of the map without boxing */
+    public interface IntIntConsumer {
+        void accept(int key, int value);
+    }
+
+    // Current hash-table capacity. Capacity is a power of 2
+    private int capacity;
+
+    // specify a load factor used in the hash-table
+    private float loadFactorThreshold;
+
+    // The number of entries in the map, including the key 0
+    private int size = 0;
+
+    // keys[i] and values[i] form one entry
+    private int[] keys;
+    private int[] values;
+
+    // The key 0 cannot be stored in the arrays since it marks free slots
+    private boolean hasZeroKey = false;
+    private int zeroValue;
+
+    // Returned by get and put when there is no entry for the key
+    private final int noEntryValue;
+
+    /** Construct a map with the default capacity and load factor */
+    public IntIntMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_LOAD_FACTOR, 0);
+    }
+
+    /** Construct a map with the specified initial
+     capacity and default load factor */
+    public IntIntMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_MAX_LOAD_FACTOR, 0);
+    }
+
+    /** Construct a map with the specified initial capacity and load factor.
+     * noEntryValue is what get returns for a missing key */
+    public IntIntMap(int initialCapacity, float loadFactorThreshold, int noEntryValue) {
+        if (loadFactorThreshold <= 0 || loadFactorThreshold >= 1)
+            throw new IllegalArgumentException("Load factor must be between 0 and 1: " + loadFactorThreshold);
+
+        if (initialCapacity > MAX_CAPACITY)
+            this.capacity = MAX_CAPACITY;
+        else
+            this.capacity = trimToPowerOf2(initialCapacity);
+
+        this.loadFactorThreshold = loadFactorThreshold;
+        this.noEntryValue = noEntryValue;
+        keys = new int[capacity];
+        values = new int[capacity];
+    }
+
+    /** Remove all entries from this map */
+    public void clear() {
+        size = 0;
+        hasZeroKey = false;
+        java.util.Arrays.fill(keys, FREE_KEY);
+    }
+
+    /** Return true if the specified key is in the map */
+    public boolean containsKey(int key) {
+        if (key == FREE_KEY)
+            return hasZeroKey;
+        return indexOf(key) >= 0;
+    }
+
+    /** Return true if this map contains the value */
+    public boolean containsValue(int value) {
+        if (hasZeroKey && zeroValue == value)
+            return true;
+
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != FREE_KEY && values[i] == value)
+                return true;
+        }
+        return false;
+    }
+
+    /** Return the value that matches the specified key, or the no-entry value */
+    public int get(int key) {
+        if (key == FREE_KEY)
+            return hasZeroKey ? zeroValue : noEntryValue;
+
+        int index = indexOf(key);
+        return index < 0 ? noEntryValue : values[index];
+    }
+
+    /** Return the value that matches the specified key, or defaultValue */
+    public int getOrDefault(int key, int defaultValue) {
+        if (key == FREE_KEY)
+            return hasZeroKey ? zeroValue : defaultValue;
+
+        int index = indexOf(key);
+        return index < 0 ? defaultValue : values[index];
+    }
+
+    /** Return the value that is returned for keys that are not in the map */
+    public int getNoEntryValue() {
+        return noEntryValue;
+    }
+
+    /** Return true if this map contains no entries */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Return the keys in this map in a new array */
+    public int[] keys() {
+        int[] result = new int[size];
+        int k = 0;
+        if (hasZeroKey)
+            result[k++] = FREE_KEY;
+
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != FREE_KEY)
+                result[k++] = keys[i];
+        }
+
+        return result;
+    }
+
+    /** Add an entry (key, value) into the map.
+     * Return the old value for the key, or the no-entry value if it was absent */
+    public int put(int key, int value) {
+        if (key == FREE_KEY) {
+            int oldValue = hasZeroKey ? zeroValue : noEntryValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return oldValue;
+        }
+
+        int mask = capacity - 1;
+        int index = hash(key);
+
+        // Walk the probe run once. Either the key is in it or we stop on the first empty slot
+        int current;
+        while ((current = keys[index]) != FREE_KEY) {
+            if (current == key) {
+                int oldValue = values[index];
+                values[index] = value;
+                return oldValue;
+            }
+            index = (index + 1) & mask;
+        }
+
+        // Check load factor. Grow before the new entry would pass it, so at
+        // least one slot always stays empty and every probe run terminates
+        if (size + 1 > capacity * loadFactorThreshold) {
+            if (capacity == MAX_CAPACITY)
+                throw new RuntimeException("Exceeding maximum capacity");
+
+            rehash();
+            index = emptySlotFor(key);
+        }
+
+        keys[index] = key;
+        values[index] = value;
+
+        size++; // Increase size
+
+        return noEntryValue;
+    }
+
+    /** Remove the entry for the specified key */
+    public void remove(int key) {
+        if (key == FREE_KEY) {
+            if (hasZeroKey) {
+                hasZeroKey = false;
+                size--;
+            }
+            return;
+        }
+
+        int hole = indexOf(key);
+        if (hole < 0)
+            return;
+
+        // Shift the rest of the probe run back into the hole, see LinearProbingHashMap.remove
+        int mask = capacity - 1;
+        int index = (hole + 1) & mask;
+        int current;
+        while ((current = keys[index]) != FREE_KEY) {
+            int home = hash(current);
+            if (((index - home) & mask) >= ((index - hole) & mask)) {
+                keys[hole] = current;
+                values[hole] = values[index];
+                hole = index;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[hole] = FREE_KEY;
+        size--; // Decrease size
+    }
+
+    /** Return the number of entries in this map */
+    public int size() {
+        return size;
+    }
+
+    /** Return the values in this map in a new array, in the same order as keys() */
+    public int[] values() {
+        int[] result = new int[size];
+        int k = 0;
+        if (hasZeroKey)
+            result[k++] = zeroValue;
+
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != FREE_KEY)
+                result[k++] = values[i];
+        }
+
+        return result;
+    }
+
+    /** Pass every (key, value) pair of the map to action */
+    public void forEach(IntIntConsumer action) {
+        if (hasZeroKey)
+            action.accept(FREE_KEY, zeroValue);
+
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != FREE_KEY)
+                action.accept(keys[i], values[i]);
+        }
+    }
+
+    /** Return the slot holding key, or -1 if the key is not in the map */
+    private int indexOf(int key) {
+        int mask = capacity - 1;
+        int index = hash(key);
+
+        int current;
+        while ((current = keys[index]) != FREE_KEY) {
+            if (current == key)
+                return index;
+            index = (index + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /** Return the first empty slot in the probe run of a key known to be absent */
+    private int emptySlotFor(int key) {
+        int mask = capacity - 1;
+        int index = hash(key);
+        while (keys[index] != FREE_KEY)
+            index = (index + 1) & mask;
+
+        return index;
+    }
+
+    /** Hash function. Multiplying by the golden ratio spreads sequential and strided ids alike */
+    private int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (capacity - 1);
+    }
+
+    /** Return a power of 2 for initialCapacity */
+    private int trimToPowerOf2(int initialCapacity) {
+        int capacity = 1;
+        while (capacity < initialCapacity) {
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+
+    /** Rehash the map into a table twice as large */
+    private void rehash() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+
+        capacity <<= 1; // Double capacity
+        keys = new int[capacity];
+        values = new int[capacity];
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                int index = emptySlotFor(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        forEach((key, value) -> builder.append("[").append(key).append(", ").append(value).append("]"));
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,844 @@
+/* An open-addressing alternative to HashMap. Instead of keeping a linked
+ * list of entries in every bucket, the keys and values are stored side by
+ * side in two parallel arrays and collisions are resolved with linear
+ * probing: when a slot is taken we simply try the next one. A lookup
+ * therefore touches one or two neighbouring slots instead of chasing the
+ * array slot, the list node and the entry, and an insert allocates nothing
+ * unless the table has to grow. Removal shifts the rest of the probe run
+ * back into the hole, so no tombstones are ever left behind.
+ * The public methods are the same as those of HashMap, so a caller can
+ * switch between the two by changing only the type it constructs.
+ */
+
+package hashmap;
+
+public class LinearProbingHashMap<K, V> {
+
+    // Define the default hash-table size. Must be a power of 2
+    private static int DEFAULT_INITIAL_CAPACITY = 4;
+
+    // Define the maximum hash-table size. 1 << 30 is same as 2^30
+    private static int MAX_CAPACITY = 1 << 30;
+
+    // Define the default load factor. Must stay below 1 so a probe always finds an empty slot
+    private static float DEFAULT_MAX_LOAD_FACTOR = 0.5f;
+
+    // Current hash-table capacity. Capacity is a power of 2
+    private int capacity;
+
+    // specify a load factor used in the hash-table
+    private float loadFactorThreshold;
+
+    // The number of entries in the map
+    private int size = 0;
+
+    // keys[i] and values[i] form one entry. A null key marks an empty slot
+    private K[] keys;
+    private V[] values;
+
+    // Incremented on every insert or removal of an entry, so iterators can fail fast
+    private int modCount = 0;
+
+    /** Construct a map with the default capacity and load factor */
+    public LinearProbingHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_LOAD_FACTOR);
+    }
+
+    /** Construct a map with the specified initial
+     capacity and default load factor */
+    public LinearProbingHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_MAX_LOAD_FACTOR);
+    }
+
+    /** Construct a map with the specified initial capacity and load factor */
+    public LinearProbingHashMap(int initialCapacity, float loadFactorThreshold) {
+        if (loadFactorThreshold <= 0 || loadFactorThreshold >= 1)
+            throw new IllegalArgumentException("Load factor must be between 0 and 1: " + loadFactorThreshold);
+
+        if (initialCapacity > MAX_CAPACITY)
+            this.capacity = MAX_CAPACITY;
+        else
+            this.capacity = trimToPowerOf2(initialCapacity);
+
+        this.loadFactorThreshold = loadFactorThreshold;
+        keys = newArray(capacity);
+        values = newArray(capacity);
+    }
+
+    /** Remove all entries from this map */
+    public void clear() {
+        modCount++;
+        size = 0;
+        java.util.Arrays.fill(keys, null);
+        java.util.Arrays.fill(values, null);
+    }
+
+    /** Return true if the specified key is in the map */
+    public boolean containsKey(K key) {
+        return indexOf(key) >= 0;
+    }
+
+    /** Return true if this map contains the value */
+    public boolean containsValue(V value) {
+        return indexOfValue(value) >= 0;
+    }
+
+    /** Return a set view of the entries in this map. The entries are copies,
+     * since the map keeps no entry objects; use a cursor to change a value
+     * while walking the map */
+    public java.util.Set<HashMap.Entry<K, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    /** Return the value that matches the specified key */
+    public V get(K key) {
+        int index = indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    /** Return true if this map contains no entries */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Return a set view of the keys in this map */
+    public java.util.Set<K> keySet() {
+        return new KeySet();
+    }
+
+    /** Add an entry (key, value) into the map */
+    public V put(K key, V value) {
+        int mask = capacity - 1;
+        int index = hash(key.hashCode());
+
+        // Walk the probe run once. Either the key is in it or we stop on the first empty slot
+        K current;
+        while ((current = keys[index]) != null) {
+            if (current == key || current.equals(key)) {
+                V oldValue = values[index];
+                // Replace old value with new value
+                values[index] = value;
+                // Return the old value for the key
+                return oldValue;
+            }
+            index = (index + 1) & mask;
+        }
+
+        addEntry(index, key, value);
+        return value;
+    }
+
+    /** Add (key, value) only if the key has no value yet.
+     * Return the value already in the map, or null if value was stored */
+    public V putIfAbsent(K key, V value) {
+        int index = indexOf(key);
+        if (index < 0) {
+            addEntry(key, value);
+            return null;
+        }
+
+        V oldValue = values[index];
+        if (oldValue == null)
+            values[index] = value;
+        return oldValue;
+    }
+
+    /** If the key has no value yet, store the value computed from the key.
+     * Return the current (existing or computed) value */
+    public V computeIfAbsent(K key,
+            java.util.function.Function<? super K, ? extends V> mappingFunction) {
+        int index = indexOf(key);
+        if (index >= 0 && values[index] != null)
+            return values[index];
+
+        int expectedModCount = modCount;
+        V newValue = mappingFunction.apply(key);
+        checkModCount(expectedModCount);
+        if (newValue != null) {
+            if (index >= 0)
+                values[index] = newValue;
+            else
+                addEntry(key, newValue);
+        }
+        return newValue;
+    }
+
+    /** If the key has a value, replace it with the value computed from the key
+     * and the old value. A null result removes the entry. Return the new value */
+    public V computeIfPresent(K key,
+            java.util.function.BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int index = indexOf(key);
+        if (index < 0 || values[index] == null)
+            return null;
+
+        int expectedModCount = modCount;
+        V newValue = remappingFunction.apply(key, values[index]);
+        checkModCount(expectedModCount);
+        if (newValue == null)
+            removeAt(index);
+        else
+            values[index] = newValue;
+        return newValue;
+    }
+
+    /** Store the value computed from the key and its current value (null if
+     * there is none). A null result removes the entry. Return the new value */
+    public V compute(K key,
+            java.util.function.BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int index = indexOf(key);
+        V oldValue = index < 0 ? null : values[index];
+
+        int expectedModCount = modCount;
+        V newValue = remappingFunction.apply(key, oldValue);
+        checkModCount(expectedModCount);
+        if (newValue == null) {
+            if (index >= 0)
+                removeAt(index);
+        }
+        else if (index >= 0)
+            values[index] = newValue;
+        else
+            addEntry(key, newValue);
+        return newValue;
+    }
+
+    /** Store value if the key has no value yet, otherwise combine the old value
+     * with value. A null result removes the entry. Return the new value */
+    public V merge(K key, V value,
+            java.util.function.BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (value == null)
+            throw new NullPointerException("merge value is null");
+
+        int index = indexOf(key);
+        if (index < 0) {
+            addEntry(key, value);
+            return value;
+        }
+        if (values[index] == null) {
+            values[index] = value;
+            return value;
+        }
+
+        int expectedModCount = modCount;
+        V newValue = remappingFunction.apply(values[index], value);
+        checkModCount(expectedModCount);
+        if (newValue == null)
+            removeAt(index);
+        else
+            values[index] = newValue;
+        return newValue;
+    }
+
+    /** Remove the entries for the specified key */
+    public void remove(K key) {
+        int index = indexOf(key);
+        if (index >= 0)
+            removeAt(index);
+    }
+
+    /** Return the number of entries in this map */
+    public int size() {
+        return size;
+    }
+
+    /** Return a collection view of the values in this map. Unlike a set it
+     * keeps duplicate values, one per entry */
+    public java.util.Collection<V> values() {
+        return new Values();
+    }
+
+    /** Pass every (key, value) pair of the map to action, walking the arrays in place */
+    public void forEach(java.util.function.BiConsumer<? super K, ? super V> action) {
+        int expectedModCount = modCount;
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != null)
+                action.accept(keys[i], values[i]);
+        }
+
+        checkModCount(expectedModCount);
+    }
+
+    /** Parallel version of forEach. The slots are split into ranges that run
+     * as fork-join tasks in the common pool until a range holds about
+     * parallelismThreshold entries; a map smaller than that runs on the
+     * calling thread (use Long.MAX_VALUE to never fork). The map must not
+     * change while the action runs */
+    public void forEach(long parallelismThreshold,
+                        java.util.function.BiConsumer<? super K, ? super V> action) {
+        java.util.concurrent.ForkJoinPool.commonPool().invoke(
+                new ForEachTask<K, V>(keys, values, 0, capacity, size, parallelismThreshold, action));
+    }
+
+    /** Combine all non-null values with reducer, in parallel as in forEach.
+     * Return null if there are none. The reducer must be associative */
+    public V reduceValues(long parallelismThreshold,
+                          java.util.function.BiFunction<? super V, ? super V, ? extends V> reducer) {
+        return java.util.concurrent.ForkJoinPool.commonPool().invoke(
+                new ReduceValuesTask<K, V>(keys, values, 0, capacity, size, parallelismThreshold, reducer));
+    }
+
+    /** Return a non-null result of searchFunction for some entry, or null if
+     * it returns null for all of them. Runs in parallel as in forEach, and
+     * all tasks stop as soon as one of them finds a result */
+    public <U> U search(long parallelismThreshold,
+                        java.util.function.BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        java.util.concurrent.atomic.AtomicReference<U> result = new java.util.concurrent.atomic.AtomicReference<>();
+        java.util.concurrent.ForkJoinPool.commonPool().invoke(
+                new SearchTask<K, V, U>(keys, values, 0, capacity, size, parallelismThreshold, searchFunction, result));
+        return result.get();
+    }
+
+    /** Parallel version of containsValue, see search */
+    public boolean containsValue(long parallelismThreshold, V value) {
+        return search(parallelismThreshold,
+                (key, v) -> java.util.Objects.equals(v, value) ? Boolean.TRUE : null) != null;
+    }
+
+    /** Return a spliterator over the entries that splits the slot arrays by index ranges */
+    public java.util.Spliterator<HashMap.Entry<K, V>> spliterator() {
+        return new EntrySpliterator<K, V>(keys, values, 0, capacity, size);
+    }
+
+    /** Return a cursor positioned before the first entry. A cursor walks the
+     * arrays directly and hands out keys and values without creating any
+     * object per entry:
+     *   for (LinearProbingHashMap<K,V>.Cursor c = map.cursor(); c.advance(); ) use(c.getKey(), c.getValue()); */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /** Return the slot holding key, or -1 if the key is not in the map */
+    private int indexOf(Object key) {
+        int mask = capacity - 1;
+        int index = hash(key.hashCode());
+
+        K current;
+        while ((current = keys[index]) != null) {
+            if (current == key || current.equals(key))
+                return index;
+            index = (index + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /** Return the first slot holding value, or -1 if no entry has that value */
+    private int indexOfValue(Object value) {
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != null && java.util.Objects.equals(values[i], value))
+                return i;
+        }
+        return -1;
+    }
+
+    /** Return the first empty slot in the probe run of a key known to be absent */
+    private int emptySlotFor(K key) {
+        int mask = capacity - 1;
+        int index = hash(key.hashCode());
+        while (keys[index] != null)
+            index = (index + 1) & mask;
+
+        return index;
+    }
+
+    /** Add an entry for a key that is known not to be in the map */
+    private void addEntry(K key, V value) {
+        addEntry(emptySlotFor(key), key, value);
+    }
+
+    /** Add an entry for a key that is known not to be in the map, where index
+     * is the empty slot that ended the key's probe run */
+    private void addEntry(int index, K key, V value) {
+        // Check load factor. Grow before the new entry would pass it, so at
+        // least one slot always stays empty and every probe run terminates
+        if (size + 1 > capacity * loadFactorThreshold) {
+            if (capacity == MAX_CAPACITY)
+                throw new RuntimeException("Exceeding maximum capacity");
+
+            rehash();
+            index = emptySlotFor(key);
+        }
+
+        keys[index] = key;
+        values[index] = value;
+
+        size++; // Increase size
+        modCount++;
+    }
+
+    /** Remove the entry in slot hole */
+    private void removeAt(int hole) {
+        // Entries further along the probe run may have been pushed past the
+        // hole. Shift each one back if the hole lies between its home slot
+        // and where it currently sits, then continue from its old slot.
+        int mask = capacity - 1;
+        int index = (hole + 1) & mask;
+        K current;
+        while ((current = keys[index]) != null) {
+            int home = hash(current.hashCode());
+            if (((index - home) & mask) >= ((index - hole) & mask)) {
+                keys[hole] = current;
+                values[hole] = values[index];
+                hole = index;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[hole] = null;
+        values[hole] = null;
+        size--; // Decrease size
+        modCount++;
+    }
+
+    /** Throw if the map was changed since expectedModCount was read, for
+     * example by a function passed to compute that wrote to the map */
+    private void checkModCount(int expectedModCount) {
+        if (modCount != expectedModCount)
+            throw new java.util.ConcurrentModificationException();
+    }
+
+    /** Hash function */
+    private int hash(int hashCode) {
+        return supplementalHash(hashCode) & (capacity - 1);
+    }
+
+    /** Ensure the hashing is evenly distributed */
+    private static int supplementalHash(int h) {
+        h ^= (h >>> 20) ^ (h >>> 12);
+        return h ^ (h >>> 7) ^ (h >>> 4);
+    }
+
+    /** Return a power of 2 for initialCapacity */
+    private int trimToPowerOf2(int initialCapacity) {
+        int capacity = 1;
+        while (capacity < initialCapacity) {
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+
+    /** Return a new array for keys or values. An Object[] is all the map
+     * needs, since the arrays never leave it */
+    @SuppressWarnings("unchecked")
+    private static <T> T[] newArray(int capacity) {
+        return (T[]) new Object[capacity];
+    }
+
+    /** Rehash the map into a table twice as large */
+    private void rehash() {
+        K[] oldKeys = keys;
+        V[] oldValues = values;
+
+        capacity <<= 1; // Double capacity
+        keys = newArray(capacity);
+        values = newArray(capacity);
+
+        // Every key is known to be distinct, so just drop each one into the
+        // first free slot of its probe run without comparing keys
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int index = emptySlotFor(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /** Walks the slots from an empty slot backwards, all the way round the
+     * table. Removing the current entry only shifts entries from later in
+     * its probe run back into the hole, and a probe run never crosses the
+     * empty slot the walk started from, so every shifted entry has already
+     * been visited and lands on a slot that has been visited too */
+    private abstract class HashIterator {
+        int next; // the slot of the entry to return next, or -1
+        int current = -1; // the slot of the entry returned last, or -1
+        int remaining; // the slots not looked at yet
+        int expectedModCount;
+
+        HashIterator() {
+            expectedModCount = modCount;
+            int start = 0;
+            while (keys[start] != null) // The load factor keeps at least one slot empty
+                start++;
+            next = start;
+            remaining = capacity - 1;
+            advanceSlot();
+        }
+
+        /** Move next to the next occupied slot */
+        private void advanceSlot() {
+            int mask = capacity - 1;
+            while (remaining > 0) {
+                remaining--;
+                next = (next - 1) & mask;
+                if (keys[next] != null)
+                    return;
+            }
+            next = -1;
+        }
+
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        int nextSlot() {
+            checkModCount(expectedModCount);
+            if (next < 0)
+                throw new java.util.NoSuchElementException();
+
+            current = next;
+            advanceSlot();
+            return current;
+        }
+
+        public void remove() {
+            if (current < 0)
+                throw new IllegalStateException();
+            checkModCount(expectedModCount);
+
+            removeAt(current);
+            current = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    private class EntryIterator extends HashIterator implements java.util.Iterator<HashMap.Entry<K, V>> {
+        public HashMap.Entry<K, V> next() {
+            int slot = nextSlot();
+            return new HashMap.Entry<K, V>(keys[slot], values[slot]);
+        }
+    }
+
+    private class KeyIterator extends HashIterator implements java.util.Iterator<K> {
+        public K next() {
+            return keys[nextSlot()];
+        }
+    }
+
+    private class ValueIterator extends HashIterator implements java.util.Iterator<V> {
+        public V next() {
+            return values[nextSlot()];
+        }
+    }
+
+    /** Cursor over the entries of the map, see cursor() */
+    public class Cursor extends HashIterator {
+        /** Move to the next entry. Return false when there are no more */
+        public boolean advance() {
+            if (next < 0)
+                return false;
+            nextSlot();
+            return true;
+        }
+
+        /** Return the key of the current entry */
+        public K getKey() {
+            checkCurrent();
+            return keys[current];
+        }
+
+        /** Return the value of the current entry */
+        public V getValue() {
+            checkCurrent();
+            return values[current];
+        }
+
+        /** Replace the value of the current entry and return the old one */
+        public V setValue(V value) {
+            checkCurrent();
+            V oldValue = values[current];
+            values[current] = value;
+            return oldValue;
+        }
+
+        private void checkCurrent() {
+            if (current < 0)
+                throw new IllegalStateException();
+            checkModCount(expectedModCount);
+        }
+    }
+
+    private class EntrySet extends java.util.AbstractSet<HashMap.Entry<K, V>> {
+        public java.util.Iterator<HashMap.Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+
+        public java.util.Spliterator<HashMap.Entry<K, V>> spliterator() {
+            return LinearProbingHashMap.this.spliterator();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean contains(Object o) {
+            return slotOf(o) >= 0;
+        }
+
+        public boolean remove(Object o) {
+            int index = slotOf(o);
+            if (index < 0)
+                return false;
+            removeAt(index);
+            return true;
+        }
+
+        public void clear() {
+            LinearProbingHashMap.this.clear();
+        }
+
+        /** Return the slot of an entry with the same key and value as o, or -1.
+         * The entries handed out are copies, so they compare by content */
+        private int slotOf(Object o) {
+            if (!(o instanceof HashMap.Entry))
+                return -1;
+            HashMap.Entry<?, ?> entry = (HashMap.Entry<?, ?>) o;
+            int index = indexOf(entry.getKey());
+            return index >= 0 && java.util.Objects.equals(values[index], entry.getValue()) ? index : -1;
+        }
+    }
+
+    private class KeySet extends java.util.AbstractSet<K> {
+        public java.util.Iterator<K> iterator() {
+            return new KeyIterator();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean contains(Object o) {
+            return o != null && indexOf(o) >= 0;
+        }
+
+        public boolean remove(Object o) {
+            int index = o == null ? -1 : indexOf(o);
+            if (index < 0)
+                return false;
+            removeAt(index);
+            return true;
+        }
+
+        public void clear() {
+            LinearProbingHashMap.this.clear();
+        }
+    }
+
+    private class Values extends java.util.AbstractCollection<V> {
+        public java.util.Iterator<V> iterator() {
+            return new ValueIterator();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean contains(Object o) {
+            return indexOfValue(o) >= 0;
+        }
+
+        public void clear() {
+            LinearProbingHashMap.this.clear();
+        }
+    }
+
+    /** Splits the slots [low, high) in halves. The entry count of a range is
+     * estimated from its share of the slots */
+    static class EntrySpliterator<K, V> implements java.util.Spliterator<HashMap.Entry<K, V>> {
+        private final K[] keys;
+        private final V[] values;
+        private int low; // next slot to visit
+        private final int high;
+        private long estimate;
+
+        EntrySpliterator(K[] keys, V[] values, int low, int high, long estimate) {
+            this.keys = keys;
+            this.values = values;
+            this.low = low;
+            this.high = high;
+            this.estimate = estimate;
+        }
+
+        public boolean tryAdvance(java.util.function.Consumer<? super HashMap.Entry<K, V>> action) {
+            while (low < high) {
+                int i = low++;
+                if (keys[i] != null) {
+                    action.accept(new HashMap.Entry<K, V>(keys[i], values[i]));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public void forEachRemaining(java.util.function.Consumer<? super HashMap.Entry<K, V>> action) {
+            for (; low < high; low++) {
+                if (keys[low] != null)
+                    action.accept(new HashMap.Entry<K, V>(keys[low], values[low]));
+            }
+        }
+
+        public java.util.Spliterator<HashMap.Entry<K, V>> trySplit() {
+            int mid = (low + high) >>> 1;
+            if (mid <= low)
+                return null;
+
+            // Hand the lower half of the remaining slots to the new spliterator
+            EntrySpliterator<K, V> prefix = new EntrySpliterator<>(keys, values, low, mid, estimate >>>= 1);
+            low = mid;
+            return prefix;
+        }
+
+        public long estimateSize() {
+            return estimate;
+        }
+
+        public int characteristics() {
+            return java.util.Spliterator.DISTINCT | java.util.Spliterator.NONNULL;
+        }
+    }
+
+    /** Return true if the slots [low, high) of a map with the given size and
+     * capacity should be split further for the threshold */
+    private static boolean shouldSplit(int low, int high, int capacity, long size, long threshold) {
+        return high - low > 1 && size * (high - low) / capacity > threshold;
+    }
+
+    static class ForEachTask<K, V> extends java.util.concurrent.RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final K[] keys;
+        private final V[] values;
+        private final int low, high;
+        private final long size, threshold;
+        private final java.util.function.BiConsumer<? super K, ? super V> action;
+
+        ForEachTask(K[] keys, V[] values, int low, int high, long size, long threshold,
+                    java.util.function.BiConsumer<? super K, ? super V> action) {
+            this.keys = keys;
+            this.values = values;
+            this.low = low;
+            this.high = high;
+            this.size = size;
+            this.threshold = threshold;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (shouldSplit(low, high, keys.length, size, threshold)) {
+                int mid = (low + high) >>> 1;
+                invokeAll(new ForEachTask<>(keys, values, low, mid, size, threshold, action),
+                        new ForEachTask<>(keys, values, mid, high, size, threshold, action));
+                return;
+            }
+
+            for (int i = low; i < high; i++) {
+                if (keys[i] != null)
+                    action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    static class ReduceValuesTask<K, V> extends java.util.concurrent.RecursiveTask<V> {
+        private static final long serialVersionUID = 1L;
+
+        private final K[] keys;
+        private final V[] values;
+        private final int low, high;
+        private final long size, threshold;
+        private final java.util.function.BiFunction<? super V, ? super V, ? extends V> reducer;
+
+        ReduceValuesTask(K[] keys, V[] values, int low, int high, long size, long threshold,
+                         java.util.function.BiFunction<? super V, ? super V, ? extends V> reducer) {
+            this.keys = keys;
+            this.values = values;
+            this.low = low;
+            this.high = high;
+            this.size = size;
+            this.threshold = threshold;
+            this.reducer = reducer;
+        }
+
+        @Override
+        protected V compute() {
+            if (shouldSplit(low, high, keys.length, size, threshold)) {
+                int mid = (low + high) >>> 1;
+                ReduceValuesTask<K, V> left = new ReduceValuesTask<>(keys, values, low, mid, size, threshold, reducer);
+                left.fork();
+                V right = new ReduceValuesTask<>(keys, values, mid, high, size, threshold, reducer).compute();
+                return combine(left.join(), right);
+            }
+
+            V result = null;
+            for (int i = low; i < high; i++) {
+                if (keys[i] != null)
+                    result = combine(result, values[i]);
+            }
+            return result;
+        }
+
+        private V combine(V a, V b) {
+            if (a == null)
+                return b;
+            return b == null ? a : reducer.apply(a, b);
+        }
+    }
+
+    static class SearchTask<K, V, U> extends java.util.concurrent.RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final K[] keys;
+        private final V[] values;
+        private final int low, high;
+        private final long size, threshold;
+        private final java.util.function.BiFunction<? super K, ? super V, ? extends U> searchFunction;
+        private final java.util.concurrent.atomic.AtomicReference<U> result;
+
+        SearchTask(K[] keys, V[] values, int low, int high, long size, long threshold,
+                   java.util.function.BiFunction<? super K, ? super V, ? extends U> searchFunction,
+                   java.util.concurrent.atomic.AtomicReference<U> result) {
+            this.keys = keys;
+            this.values = values;
+            this.low = low;
+            this.high = high;
+            this.size = size;
+            this.threshold = threshold;
+            this.searchFunction = searchFunction;
+            this.result = result;
+        }
+
+        @Override
+        protected void compute() {
+            if (shouldSplit(low, high, keys.length, size, threshold)) {
+                int mid = (low + high) >>> 1;
+                invokeAll(new SearchTask<>(keys, values, low, mid, size, threshold, searchFunction, result),
+                        new SearchTask<>(keys, values, mid, high, size, threshold, searchFunction, result));
+                return;
+            }
+
+            for (int i = low; i < high && result.get() == null; i++) {
+                if (keys[i] != null) {
+                    U found = searchFunction.apply(keys[i], values[i]);
+                    if (found != null) {
+                        result.compareAndSet(null, found);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != null)
+                builder.append("[").append(keys[i]).append(", ").append(values[i]).append("]");
+        }
+
+        builder.append("]");
+        return builder.toString();
+    }
+}
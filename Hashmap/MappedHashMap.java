@@ -0,0 +1,140 @@
+/* Saves a map to a file in the same slot layout that OffHeapHashMap uses in
+ * memory, and opens such a file again by memory-mapping it. Since the file
+ * already is a finished hash table, nothing is deserialized or re-put when
+ * it is opened: the operating system pages the slots in the first time a
+ * lookup touches them, so a map of any size is usable right away. The
+ * returned map is read-only and its lookups share no scratch state, so one
+ * snapshot can be queried from any number of threads at once.
+ *
+ * File format (all numbers big-endian):
+ *   header  magic "HMAP", version, key size, value size, capacity, size, load factor
+ *   slots   capacity slots as described in OffHeapHashMap
+ */
+
+package hashmap;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class MappedHashMap {
+
+    // "HMAP" in ASCII
+    private static final int MAGIC = 0x484D4150;
+    private static final int VERSION = 1;
+
+    // Byte offsets of the header fields
+    private static final int KEY_SIZE_OFFSET = 8;
+    private static final int VALUE_SIZE_OFFSET = 12;
+    private static final int CAPACITY_OFFSET = 16;
+    private static final int SIZE_OFFSET = 20;
+    private static final int LOAD_FACTOR_OFFSET = 24;
+    private static final int HEADER_SIZE = 32;
+
+    // Load factor of the written table; lower means shorter probe runs
+    private static float DEFAULT_MAX_LOAD_FACTOR = 0.5f;
+
+    private MappedHashMap() {
+    }
+
+    /** Write every entry of map into file, replacing the file if it exists.
+     * The table is built in a temporary file next to it that is renamed over
+     * file only once it is complete, so if anything fails, such as a value
+     * the serializer rejects, file is left as it was and nothing stays mapped */
+    public static <K, V> void write(HashMap<K, V> map, Path file,
+                                    Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+        int capacity = 1;
+        while (map.size() >= capacity * DEFAULT_MAX_LOAD_FACTOR)
+            capacity <<= 1;
+
+        long length = HEADER_SIZE + (long) capacity * OffHeapHashMap.slotSize(keySerializer, valueSerializer);
+        if (length > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("The map is too large for one mapped file: " + map.size());
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        boolean written = false;
+        try {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                // A freshly extended file reads as zeros, so every slot starts out empty
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            }
+
+            OffHeapHashMap<K, V> table = new OffHeapHashMap<>(keySerializer, valueSerializer, buffer,
+                    HEADER_SIZE, capacity, 0, DEFAULT_MAX_LOAD_FACTOR);
+            try {
+                for (HashMap.Entry<K, V> entry: map.entrySet())
+                    table.put(entry.getKey(), entry.getValue());
+
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(KEY_SIZE_OFFSET, keySerializer.size());
+                buffer.putInt(VALUE_SIZE_OFFSET, valueSerializer.size());
+                buffer.putInt(CAPACITY_OFFSET, capacity);
+                buffer.putInt(SIZE_OFFSET, table.size());
+                buffer.putFloat(LOAD_FACTOR_OFFSET, DEFAULT_MAX_LOAD_FACTOR);
+
+                buffer.force(); // Make sure everything reached the file
+            } finally {
+                table.close(); // Unmap it, also when a put failed
+            }
+
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            written = true;
+        } finally {
+            if (!written)
+                Files.deleteIfExists(temporary);
+        }
+    }
+
+    /** Map file into memory and return a read-only map over it. Lookups work
+     * immediately; put, remove and clear throw ReadOnlyBufferException.
+     * Close the map to unmap the file */
+    public static <K, V> OffHeapHashMap<K, V> open(Path file, Serializer<K> keySerializer,
+                                                   Serializer<V> valueSerializer) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Not a map file: " + file);
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        // Unmap the file again if anything in the header is wrong
+        try {
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                throw new IOException("Not a map file: " + file);
+            if (buffer.getInt(KEY_SIZE_OFFSET) != keySerializer.size()
+                    || buffer.getInt(VALUE_SIZE_OFFSET) != valueSerializer.size())
+                throw new IOException("The serializers do not match the key and value sizes in " + file);
+
+            int capacity = buffer.getInt(CAPACITY_OFFSET);
+            int size = buffer.getInt(SIZE_OFFSET);
+            float loadFactor = buffer.getFloat(LOAD_FACTOR_OFFSET);
+            long expected = HEADER_SIZE + (long) capacity * OffHeapHashMap.slotSize(keySerializer, valueSerializer);
+            if (Integer.bitCount(capacity) != 1 || buffer.capacity() != expected)
+                throw new IOException("The map file is damaged: " + file);
+            // write keeps size below capacity * loadFactor, so a probe always meets an empty slot
+            if (!(loadFactor > 0 && loadFactor < 1) || size < 0 || size >= capacity * loadFactor)
+                throw new IOException("The map file is damaged, size " + size + " does not fit capacity "
+                        + capacity + ": " + file);
+
+            return new OffHeapHashMap<>(keySerializer, valueSerializer, buffer, HEADER_SIZE, capacity,
+                    size, loadFactor);
+        } catch (IOException | RuntimeException ex) {
+            OffHeapHashMap.free(buffer);
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,430 @@
+/* A hash map whose entries live outside the Java heap. Every key and value
+ * is turned into a fixed number of bytes by a Serializer and written into a
+ * direct ByteBuffer, so the garbage collector sees one buffer object no
+ * matter how many entries the map holds. The slots are laid out one after
+ * another and collisions are resolved with linear probing, like
+ * LinearProbingHashMap. Keys are hashed and compared by their serialized
+ * bytes, so a lookup never deserializes a stored key. The memory is given
+ * back explicitly with close().
+ * Every operation serializes its key into a buffer of its own, so lookups
+ * share no mutable state: any number of threads may call get, containsKey
+ * and the other reading methods at once as long as nobody writes, as on a
+ * map opened with MappedHashMap.open. Writes need external locking.
+ */
+
+package hashmap;
+
+import java.nio.ByteBuffer;
+
+public class OffHeapHashMap<K, V> implements MyMap<K, V>, AutoCloseable {
+
+    // Define the default hash-table size. Must be a power of 2
+    private static int DEFAULT_INITIAL_CAPACITY = 16;
+
+    // Define the default load factor. Must stay below 1 so a probe always finds an empty slot
+    private static float DEFAULT_MAX_LOAD_FACTOR = 0.5f;
+
+    // Layout of a slot: state byte, hash of the key bytes, key bytes, value bytes
+    static final int HASH_OFFSET = 1;
+    static final int KEY_OFFSET = HASH_OFFSET + Integer.BYTES;
+
+    // Values of the state byte
+    static final byte EMPTY = 0;
+    static final byte FULL = 1;
+
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final int keySize;
+    private final int slotSize;
+
+    // Memory holding the slots, starting at index base. Null once closed
+    private ByteBuffer buffer;
+    private final int base;
+
+    // False when the slots live in memory we did not allocate, such as a mapped file
+    private final boolean growable;
+
+    // Current hash-table capacity. Capacity is a power of 2
+    private int capacity;
+
+    // specify a load factor used in the hash-table
+    private float loadFactorThreshold;
+
+    // The number of entries in the map
+    private int size = 0;
+
+    /** Construct a map with the default capacity and load factor */
+    public OffHeapHashMap(Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this(keySerializer, valueSerializer, DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_LOAD_FACTOR);
+    }
+
+    /** Construct a map with the specified initial capacity and load factor */
+    public OffHeapHashMap(Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                          int initialCapacity, float loadFactorThreshold) {
+        this(keySerializer, valueSerializer, null, 0,
+                trimToPowerOf2(initialCapacity), 0, loadFactorThreshold);
+    }
+
+    /** Construct a map over capacity slots that already exist in buffer starting
+     * at index base and hold size entries. The map never grows such a buffer.
+     * With a null buffer, a growable direct buffer is allocated instead */
+    OffHeapHashMap(Serializer<K> keySerializer, Serializer<V> valueSerializer, ByteBuffer buffer,
+                   int base, int capacity, int size, float loadFactorThreshold) {
+        if (loadFactorThreshold <= 0 || loadFactorThreshold >= 1)
+            throw new IllegalArgumentException("Load factor must be between 0 and 1: " + loadFactorThreshold);
+
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.keySize = keySerializer.size();
+        this.slotSize = slotSize(keySerializer, valueSerializer);
+        this.loadFactorThreshold = loadFactorThreshold;
+
+        if (buffer == null) {
+            if ((long) capacity * slotSize > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Capacity too large for one buffer: " + capacity);
+            this.buffer = ByteBuffer.allocateDirect(capacity * slotSize);
+            this.growable = true;
+        }
+        else {
+            this.buffer = buffer;
+            this.growable = false;
+        }
+        this.base = base;
+        this.capacity = capacity;
+        this.size = size;
+    }
+
+    /** Return the number of bytes one slot takes for the given serializers */
+    static int slotSize(Serializer<?> keySerializer, Serializer<?> valueSerializer) {
+        return KEY_OFFSET + keySerializer.size() + valueSerializer.size();
+    }
+
+    @Override /** Remove all entries from this map */
+    public void clear() {
+        checkOpen();
+        for (int i = 0; i < capacity; i++)
+            buffer.put(slotOffset(i), EMPTY);
+        size = 0;
+    }
+
+    @Override /** Return true if the specified key is in the map */
+    public boolean containsKey(K key) {
+        checkOpen();
+        ByteBuffer keyBuffer = serializeKey(key);
+        return find(keyBuffer, hash(keyBuffer)) >= 0;
+    }
+
+    @Override /** Return true if this map contains the value */
+    public boolean containsValue(V value) {
+        checkOpen();
+        for (int i = 0; i < capacity; i++) {
+            int offset = slotOffset(i);
+            if (buffer.get(offset) == FULL
+                    && java.util.Objects.equals(valueSerializer.read(buffer, offset + KEY_OFFSET + keySize), value))
+                return true;
+        }
+        return false;
+    }
+
+    @Override /** Return a set of entries in the map, read back onto the heap */
+    public java.util.Set<MyMap.Entry<K, V>> entrySet() {
+        checkOpen();
+        java.util.Set<MyMap.Entry<K, V>> set = new java.util.HashSet<>();
+
+        for (int i = 0; i < capacity; i++) {
+            int offset = slotOffset(i);
+            if (buffer.get(offset) == FULL)
+                set.add(new MyMap.Entry<K, V>(keySerializer.read(buffer, offset + KEY_OFFSET),
+                        valueSerializer.read(buffer, offset + KEY_OFFSET + keySize)));
+        }
+
+        return set;
+    }
+
+    @Override /** Return the value that matches the specified key */
+    public V get(K key) {
+        checkOpen();
+        ByteBuffer keyBuffer = serializeKey(key);
+        int index = find(keyBuffer, hash(keyBuffer));
+        if (index < 0)
+            return null;
+
+        return valueSerializer.read(buffer, slotOffset(index) + KEY_OFFSET + keySize);
+    }
+
+    @Override /** Return true if this map contains no entries */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override /** Return a set consisting of the keys in this map, read back onto the heap */
+    public java.util.Set<K> keySet() {
+        checkOpen();
+        java.util.Set<K> set = new java.util.HashSet<>();
+
+        for (int i = 0; i < capacity; i++) {
+            int offset = slotOffset(i);
+            if (buffer.get(offset) == FULL)
+                set.add(keySerializer.read(buffer, offset + KEY_OFFSET));
+        }
+
+        return set;
+    }
+
+    @Override /** Add an entry (key, value) into the map */
+    public V put(K key, V value) {
+        checkOpen();
+        ByteBuffer keyBuffer = serializeKey(key);
+        // Serialize the value before touching the table, so a value the
+        // serializer rejects leaves the map exactly as it was
+        ByteBuffer valueBuffer = serializeValue(value);
+        int hash = hash(keyBuffer);
+        int index = find(keyBuffer, hash);
+        if (index >= 0) { // The key is already in the map
+            int valueOffset = slotOffset(index) + KEY_OFFSET + keySize;
+            V oldValue = valueSerializer.read(buffer, valueOffset);
+            // Replace old value with new value
+            copyBytes(valueBuffer, buffer, valueOffset);
+            return oldValue;
+        }
+
+        // Check load factor. Grow before the new entry would pass it, so at
+        // least one slot always stays empty and every probe run terminates
+        if (size + 1 > capacity * loadFactorThreshold) {
+            if (!growable)
+                throw new IllegalStateException("The map is full and its memory cannot grow");
+
+            rehash();
+            index = find(keyBuffer, hash);
+        }
+
+        // find returns -(empty slot + 1) for a missing key
+        int offset = slotOffset(-(index + 1));
+        copyBytes(valueBuffer, buffer, offset + KEY_OFFSET + keySize);
+        buffer.putInt(offset + HASH_OFFSET, hash);
+        copyBytes(keyBuffer, buffer, offset + KEY_OFFSET);
+        buffer.put(offset, FULL); // The slot counts as taken only once it is complete
+
+        size++; // Increase size
+
+        return value;
+    }
+
+    @Override /** Remove the entries for the specified key */
+    public void remove(K key) {
+        checkOpen();
+        ByteBuffer keyBuffer = serializeKey(key);
+        int hole = find(keyBuffer, hash(keyBuffer));
+        if (hole < 0)
+            return;
+
+        // Shift the rest of the probe run back into the hole, see LinearProbingHashMap.remove
+        int mask = capacity - 1;
+        int index = (hole + 1) & mask;
+        while (buffer.get(slotOffset(index)) == FULL) {
+            int home = buffer.getInt(slotOffset(index) + HASH_OFFSET) & mask;
+            if (((index - home) & mask) >= ((index - hole) & mask)) {
+                copySlot(buffer, slotOffset(index), buffer, slotOffset(hole));
+                hole = index;
+            }
+            index = (index + 1) & mask;
+        }
+
+        buffer.put(slotOffset(hole), EMPTY);
+        size--; // Decrease size
+    }
+
+    @Override /** Return the number of entries in this map */
+    public int size() {
+        return size;
+    }
+
+    @Override /** Return a set consisting of the values in this map, read back onto the heap */
+    public java.util.Set<V> values() {
+        checkOpen();
+        java.util.Set<V> set = new java.util.HashSet<>();
+
+        for (int i = 0; i < capacity; i++) {
+            int offset = slotOffset(i);
+            if (buffer.get(offset) == FULL)
+                set.add(valueSerializer.read(buffer, offset + KEY_OFFSET + keySize));
+        }
+
+        return set;
+    }
+
+    /** Release the memory of this map. The map cannot be used afterwards */
+    @Override
+    public void close() {
+        if (buffer != null) {
+            free(buffer);
+            buffer = null;
+            size = 0;
+        }
+    }
+
+    /** Return the number of slots in the table */
+    int capacity() {
+        return capacity;
+    }
+
+    /** Serialize key into a new heap buffer of keySize bytes. The buffer
+     * belongs to the calling operation alone, which keeps lookups thread-safe */
+    private ByteBuffer serializeKey(K key) {
+        ByteBuffer keyBuffer = ByteBuffer.allocate(keySize);
+        keySerializer.write(keyBuffer, 0, key);
+        return keyBuffer;
+    }
+
+    /** Serialize value into a new heap buffer of the value size */
+    private ByteBuffer serializeValue(V value) {
+        ByteBuffer valueBuffer = ByteBuffer.allocate(valueSerializer.size());
+        valueSerializer.write(valueBuffer, 0, value);
+        return valueBuffer;
+    }
+
+    /** Copy all the bytes of from into to, starting at index offset of to */
+    private static void copyBytes(ByteBuffer from, ByteBuffer to, int offset) {
+        int length = from.capacity();
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES)
+            to.putLong(offset + i, from.getLong(i));
+        for (; i < length; i++)
+            to.put(offset + i, from.get(i));
+    }
+
+    /** Return the hash of the serialized key in keyBuffer */
+    private int hash(ByteBuffer keyBuffer) {
+        // FNV-1a over the serialized key, so the hash is the same in every JVM
+        int h = 0x811C9DC5;
+        for (int i = 0; i < keySize; i++) {
+            h ^= keyBuffer.get(i) & 0xff;
+            h *= 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /** Return the slot holding the key in keyBuffer, or -(empty slot + 1) if it is absent */
+    private int find(ByteBuffer keyBuffer, int hash) {
+        int mask = capacity - 1;
+        int index = hash & mask;
+
+        while (true) {
+            int offset = slotOffset(index);
+            if (buffer.get(offset) == EMPTY)
+                return -(index + 1);
+            if (buffer.getInt(offset + HASH_OFFSET) == hash && keyEquals(offset + KEY_OFFSET, keyBuffer))
+                return index;
+            index = (index + 1) & mask;
+        }
+    }
+
+    /** Return true if the key bytes stored at offset equal those in keyBuffer */
+    private boolean keyEquals(int offset, ByteBuffer keyBuffer) {
+        int i = 0;
+        for (; i + Long.BYTES <= keySize; i += Long.BYTES) {
+            if (buffer.getLong(offset + i) != keyBuffer.getLong(i))
+                return false;
+        }
+        for (; i < keySize; i++) {
+            if (buffer.get(offset + i) != keyBuffer.get(i))
+                return false;
+        }
+        return true;
+    }
+
+    /** Copy one whole slot, eight bytes at a time */
+    private void copySlot(ByteBuffer from, int fromOffset, ByteBuffer to, int toOffset) {
+        int i = 0;
+        for (; i + Long.BYTES <= slotSize; i += Long.BYTES)
+            to.putLong(toOffset + i, from.getLong(fromOffset + i));
+        for (; i < slotSize; i++)
+            to.put(toOffset + i, from.get(fromOffset + i));
+    }
+
+    /** Return the index in buffer where slot i starts */
+    private int slotOffset(int i) {
+        return base + i * slotSize;
+    }
+
+    /** Return a power of 2 for initialCapacity */
+    private static int trimToPowerOf2(int initialCapacity) {
+        int capacity = 1;
+        while (capacity < initialCapacity) {
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+
+    /** Rehash the map into a buffer twice as large and free the old one */
+    private void rehash() {
+        if ((long) capacity * 2 * slotSize > Integer.MAX_VALUE)
+            throw new RuntimeException("Exceeding maximum capacity");
+
+        ByteBuffer oldBuffer = buffer;
+        int oldCapacity = capacity;
+
+        capacity <<= 1; // Double capacity
+        buffer = ByteBuffer.allocateDirect(capacity * slotSize);
+
+        // The stored hash places each slot without touching the key
+        int mask = capacity - 1;
+        for (int i = 0; i < oldCapacity; i++) {
+            int offset = i * slotSize;
+            if (oldBuffer.get(offset) == FULL) {
+                int index = oldBuffer.getInt(offset + HASH_OFFSET) & mask;
+                while (buffer.get(slotOffset(index)) == FULL)
+                    index = (index + 1) & mask;
+                copySlot(oldBuffer, offset, buffer, slotOffset(index));
+            }
+        }
+
+        free(oldBuffer);
+    }
+
+    /** Throw if the map has been closed, since its memory may be gone */
+    private void checkOpen() {
+        if (buffer == null)
+            throw new IllegalStateException("The map has been closed");
+    }
+
+    // sun.misc.Unsafe.invokeCleaner, if this JVM offers it
+    private static Object unsafe;
+    private static java.lang.reflect.Method invokeCleaner;
+
+    static {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            java.lang.reflect.Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            invokeCleaner = null; // Fall back to letting the garbage collector free buffers
+        }
+    }
+
+    /** Free the memory of a direct or mapped buffer right away instead of waiting for the GC */
+    static void free(ByteBuffer buffer) {
+        if (invokeCleaner == null || !buffer.isDirect())
+            return;
+
+        try {
+            invokeCleaner.invoke(unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            // Not the owner of its memory (a slice or duplicate); the GC will free it
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+
+        for (MyMap.Entry<K, V> entry: entrySet())
+            builder.append(entry);
+
+        builder.append("]");
+        return builder.toString();
+    }
+}
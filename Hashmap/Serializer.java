@@ -0,0 +1,93 @@
+package hashmap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/** Turns keys or values into a fixed number of bytes so that OffHeapHashMap
+ * can keep them outside the Java heap */
+public interface Serializer<T> {
+    /** Return the number of bytes every serialized object takes */
+    public int size();
+
+    /** Write object into buffer starting at the absolute index offset */
+    public void write(ByteBuffer buffer, int offset, T object);
+
+    /** Read an object back from buffer starting at the absolute index offset */
+    public T read(ByteBuffer buffer, int offset);
+
+    /** Serializer for Integer, 4 bytes */
+    public static final Serializer<Integer> INT = new Serializer<Integer>() {
+        public int size() {
+            return Integer.BYTES;
+        }
+
+        public void write(ByteBuffer buffer, int offset, Integer object) {
+            buffer.putInt(offset, object);
+        }
+
+        public Integer read(ByteBuffer buffer, int offset) {
+            return buffer.getInt(offset);
+        }
+    };
+
+    /** Serializer for Long, 8 bytes */
+    public static final Serializer<Long> LONG = new Serializer<Long>() {
+        public int size() {
+            return Long.BYTES;
+        }
+
+        public void write(ByteBuffer buffer, int offset, Long object) {
+            buffer.putLong(offset, object);
+        }
+
+        public Long read(ByteBuffer buffer, int offset) {
+            return buffer.getLong(offset);
+        }
+    };
+
+    /** Serializer for Double, 8 bytes */
+    public static final Serializer<Double> DOUBLE = new Serializer<Double>() {
+        public int size() {
+            return Double.BYTES;
+        }
+
+        public void write(ByteBuffer buffer, int offset, Double object) {
+            buffer.putDouble(offset, object);
+        }
+
+        public Double read(ByteBuffer buffer, int offset) {
+            return buffer.getDouble(offset);
+        }
+    };
+
+    /** Return a serializer for strings of at most maxBytes bytes in UTF-8.
+     * Every string takes 2 + maxBytes bytes: a length followed by the padded text */
+    public static Serializer<String> fixedString(int maxBytes) {
+        if (maxBytes < 0 || maxBytes > Short.MAX_VALUE)
+            throw new IllegalArgumentException("maxBytes out of range: " + maxBytes);
+
+        return new Serializer<String>() {
+            public int size() {
+                return Short.BYTES + maxBytes;
+            }
+
+            public void write(ByteBuffer buffer, int offset, String object) {
+                byte[] bytes = object.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > maxBytes)
+                    throw new IllegalArgumentException("String longer than " + maxBytes + " bytes: " + object);
+
+                buffer.putShort(offset, (short) bytes.length);
+                // Zero the padding so equal strings always serialize to equal bytes
+                for (int i = 0; i < maxBytes; i++)
+                    buffer.put(offset + Short.BYTES + i, i < bytes.length ? bytes[i] : 0);
+            }
+
+            public String read(ByteBuffer buffer, int offset) {
+                byte[] bytes = new byte[buffer.getShort(offset)];
+                for (int i = 0; i < bytes.length; i++)
+                    bytes[i] = buffer.get(offset + Short.BYTES + i);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+}
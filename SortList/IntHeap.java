@@ -0,0 +1,138 @@
+/* A max-heap of int values, the primitive replacement for the old boxed
+ * Heap<Integer> that SortList.heapSort used to fill. The heap lives in a
+ * plain int array that doubles when it is full, so nothing is ever boxed
+ * and comparisons are single instructions instead of compareTo calls.
+ * Elements move by "hole moving": the element being placed is held in a
+ * local while the others shift one level into the hole, and it is written
+ * once at its final position instead of being swapped at every level.
+ * The static sift methods work on any range of an array and are shared
+ * with SortList.heapSort.
+ */
+
+package sortlist;
+
+public class IntHeap {
+
+    // Define the default capacity of the heap array
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    // heap[0..size-1] is the heap; heap[0] is the largest element
+    private int[] heap;
+
+    // The number of elements in the heap
+    private int size = 0;
+
+    /** Create an empty heap */
+    public IntHeap() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /** Create an empty heap with room for initialCapacity elements */
+    public IntHeap(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Capacity must not be negative: " + initialCapacity);
+        heap = new int[Math.max(1, initialCapacity)];
+    }
+
+    /** Create a heap from an array of elements in O(n) with Floyd's bottom-up construction */
+    public IntHeap(int[] elements) {
+        heap = java.util.Arrays.copyOf(elements, Math.max(1, elements.length));
+        size = elements.length;
+        heapify(heap, 0, size);
+    }
+
+    /** Add a new element into the heap */
+    public void add(int element) {
+        if (size == heap.length)
+            heap = java.util.Arrays.copyOf(heap, heap.length * 2);
+        siftUp(heap, 0, size++, element);
+    }
+
+    /** Return the largest element without removing it */
+    public int peek() {
+        if (size == 0)
+            throw new java.util.NoSuchElementException("Heap is empty");
+        return heap[0];
+    }
+
+    /** Remove the largest element from the heap and return it */
+    public int remove() {
+        if (size == 0)
+            throw new java.util.NoSuchElementException("Heap is empty");
+        int removedElement = heap[0];
+        int last = heap[--size];
+        if (size > 0)
+            siftDown(heap, 0, 0, last, size);
+        return removedElement;
+    }
+
+    /** Remove all the elements */
+    public void clear() {
+        size = 0;
+    }
+
+    /** Return true if the heap is empty */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Get the number of elements in the heap */
+    public int getSize() {
+        return size;
+    }
+
+    /** Turn list[offset..offset+size-1] into a max-heap by sifting down every
+     * parent, from the last one to the root. This takes O(n) time, against
+     * O(n log n) for adding the elements one at a time */
+    static void heapify(int[] list, int offset, int size) {
+        for (int i = size / 2 - 1; i >= 0; i--)
+            siftDown(list, offset, i, list[offset + i], size);
+    }
+
+    /** Place element in the hole at heap index hole of the max-heap of size
+     * elements stored from list[offset], moving larger children up into the
+     * hole until element is no smaller than both children */
+    static void siftDown(int[] list, int offset, int hole, int element, int size) {
+        int half = size >>> 1; // nodes from here on are leaves
+        while (hole < half) {
+            int child = 2 * hole + 1;
+            int childElement = list[offset + child];
+            if (child + 1 < size && list[offset + child + 1] > childElement)
+                childElement = list[offset + ++child];
+            if (element >= childElement)
+                break;
+            list[offset + hole] = childElement;
+            hole = child;
+        }
+        list[offset + hole] = element;
+    }
+
+    /** Place element in the hole at heap index hole, moving smaller parents
+     * down into the hole until element is no larger than its parent */
+    static void siftUp(int[] list, int offset, int hole, int element) {
+        while (hole > 0) {
+            int parent = (hole - 1) >>> 1;
+            int parentElement = list[offset + parent];
+            if (parentElement >= element)
+                break;
+            list[offset + hole] = parentElement;
+            hole = parent;
+        }
+        list[offset + hole] = element;
+    }
+
+    /** Move the hole at the root of the max-heap of size elements stored from
+     * list[offset] down to a leaf, always promoting the larger child, and
+     * return the leaf's heap index. One comparison per level instead of two */
+    static int siftHoleToLeaf(int[] list, int offset, int size) {
+        int hole = 0;
+        int child;
+        while ((child = 2 * hole + 1) < size) {
+            if (child + 1 < size && list[offset + child + 1] > list[offset + child])
+                child++;
+            list[offset + hole] = list[offset + child];
+            hole = child;
+        }
+        return hole;
+    }
+}
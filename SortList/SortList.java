@@ -1,76 +1,65 @@
-/* In this program we will be investigating different types of sorting methods
- * and see which one is the fastest (most efficient). We first start with a list of
- * 50K elements and move our way up to 300K elements with an increment of 50K; each having
- * random integers to be sorted. Once that's created, we call each method on all the lists
- * and time them using the currentTimeMills method. To prevent the system from overflowing,
- * we copy our original list into another and continue. Once all is finished, we print
- * them nice and neat in a table.
+/* In this program we will be investigating different types of sorting methods:
+ * selection, merge, quick, heap and radix sort, and fork-join parallel
+ * versions of merge sort and quicksort. main sorts the same random
+ * list of 50K elements with each of them and checks the result against
+ * java.util.Arrays.sort.
+ * Timing is done with JMH in the benchmarks module (see benchmarks/), which
+ * warms the JIT up, runs in separate JVMs and keeps the results from being
+ * optimized away; a single currentTimeMillis call pair around one cold run
+ * measured mostly noise.
  * April 2, 2020
  * Arman Sadeghi
  */
 package sortlist;
 
 import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class SortList {
     public static void main(String[] args) {
+        int [] list = new int[50000];
+        // generate random integers to be sorted
+        for (int i = 0; i < list.length; i++){
+            list[i] = (int)(Math.random() * 10000);
+        }
+        int[] expected = list.clone();
+        java.util.Arrays.sort(expected);
 
-        System.out.println("Array Size    |  Selection  |    Merge    |    Quick    |     Heap    |   Radix");
-        System.out.print("-------------------------------------------------------------------------------------");
-        // start from 50k elements and add 50k till it reaches 300k elements
-        for (int listSize = 50000; listSize <= 300000; listSize += 50000){
-            int [] list = new int[listSize];
-            // generate random integers to be sorted
-            for (int i = 0; i < list.length; i++){
-                list[i] = (int)(Math.random() * 10000);
-            }
+        int[] list2 = list.clone();
+        selectionSort(list2);
+        check("Selection", list2, expected);
 
-            int width = 13;
-            System.out.printf("\n %" + width + "d|", listSize);
-            int[] list2 = new int[listSize];
-            System.arraycopy(list, 0, list2, 0, list.length);
-            long startTimeSelection = System.currentTimeMillis();
-            selectionSort(list2);
-            long endTimeSelection = System.currentTimeMillis();
-            long selectionTime = endTimeSelection - startTimeSelection;
-            System.out.printf("%" + width + "d|", selectionTime);
-
-
-            list2 = new int[listSize];
-            System.arraycopy(list, 0, list2, 0, list.length);
-            long startTimeMerge = System.currentTimeMillis();
-            mergeSort(list2);
-            long endTimeMerge = System.currentTimeMillis();
-            long mergeTime = endTimeMerge - startTimeMerge;
-            System.out.printf("%" + width + "d|", mergeTime);
-
-
-            list2 = new int[listSize];
-            System.arraycopy(list, 0, list2, 0, list.length);
-            long startTimeQuick = System.currentTimeMillis();
-            quickSort(list2);
-            long endTimeQuick = System.currentTimeMillis();
-            long quickTime = endTimeQuick - startTimeQuick;
-            System.out.printf("%" + width + "d|", quickTime);
-
-
-            list2 = new int[listSize];
-            System.arraycopy(list, 0, list2, 0, list.length);
-            long startTimeHeap = System.currentTimeMillis();
-            heapSort(list2);
-            long endTimeHeap = System.currentTimeMillis();
-            long heapTime = endTimeHeap - startTimeHeap;
-            System.out.printf("%" + width + "d|", heapTime);
-
-
-            list2 = new int[listSize];
-            System.arraycopy(list, 0, list2, 0, list.length);
-            long startTimeRadix = System.currentTimeMillis();
-            radixSort(list2, 10000);
-            long endTimeRadix = System.currentTimeMillis();
-            long radixTime = endTimeRadix - startTimeRadix;
-            System.out.printf("%" + width + "d|", radixTime);
-        }
+        list2 = list.clone();
+        mergeSort(list2);
+        check("Merge", list2, expected);
+
+        list2 = list.clone();
+        quickSort(list2);
+        check("Quick", list2, expected);
+
+        list2 = list.clone();
+        parallelMergeSort(list2);
+        check("PMerge", list2, expected);
+
+        list2 = list.clone();
+        parallelQuickSort(list2);
+        check("PQuick", list2, expected);
+
+        list2 = list.clone();
+        heapSort(list2);
+        check("Heap", list2, expected);
+
+        list2 = list.clone();
+        radixSort(list2, 10000);
+        check("Radix", list2, expected);
+
+        System.out.println("For timings run the JMH benchmarks: cd benchmarks && mvn package && java -jar target/benchmarks.jar");
+    }
+
+    /** Print whether list matches the expected sorted list */
+    private static void check(String name, int[] list, int[] expected){
+        System.out.printf("%-10s %s%n", name, java.util.Arrays.equals(list, expected) ? "sorted" : "NOT SORTED");
     }
 
     public static void selectionSort(int [] list){
@@ -91,19 +80,72 @@ public class SortList {
         }
     }
 
+    // Ranges of at most this many elements are sorted with insertion sort
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
     public static void mergeSort(int [] list){
-        if (list.length > 1){  // base case
-            // merge the first half
-            int [] firstHalf = new int[list.length / 2];
-            System.arraycopy(list,0,firstHalf,0,list.length / 2);
-            mergeSort(firstHalf);
-            // merge sort the second half
-            int secondHalfLength = list.length - list.length / 2;
-            int [] secondHalf = new int[secondHalfLength];
-            System.arraycopy(list,list.length / 2,secondHalf,0,secondHalfLength);
-            mergeSort(secondHalf);
-
-            merge(firstHalf,secondHalf,list);
+        mergeSort(list, new int[list.length]);
+    }
+
+    /** Merge sort list using buffer, which must be at least as long as list,
+     * as the only extra memory. Sorting many arrays with the same buffer
+     * allocates nothing at all */
+    public static void mergeSort(int [] list, int [] buffer){
+        if (buffer.length < list.length){
+            throw new IllegalArgumentException("Buffer is shorter than the list: " + buffer.length + " < " + list.length);
+        }
+        System.arraycopy(list, 0, buffer, 0, list.length);
+        mergeSort(buffer, list, 0, list.length - 1);
+    }
+
+    /** Sort src[first..last] into dst[first..last]. Both must hold the same
+     * elements in that range on entry. The halves are sorted the other way
+     * round, into src, so the two arrays swap roles at every level and no
+     * element is ever copied back */
+    private static void mergeSort(int [] src, int [] dst, int first, int last){
+        if (last - first < INSERTION_SORT_THRESHOLD){
+            insertionSort(dst, first, last);
+            return;
+        }
+
+        int mid = (first + last) >>> 1;
+        mergeSort(dst, src, first, mid);
+        mergeSort(dst, src, mid + 1, last);
+
+        if (src[mid] <= src[mid + 1]){
+            // the halves are already in order, nothing to merge
+            System.arraycopy(src, first, dst, first, last - first + 1);
+        } else {
+            merge(src, first, mid, mid + 1, last, dst, first);
+        }
+    }
+
+    /** Merge the sorted runs src[first1..last1] and src[first2..last2] into dst,
+     * starting at index to. Either run may be empty */
+    private static void merge(int [] src, int first1, int last1, int first2, int last2, int [] dst, int to){
+        while (first1 <= last1 && first2 <= last2){
+            if (src[first1] <= src[first2]){
+                dst[to++] = src[first1++];
+            } else {
+                dst[to++] = src[first2++];
+            }
+        } // the rest of whichever run is left
+        System.arraycopy(src, first1, dst, to, last1 - first1 + 1);
+        to += last1 - first1 + 1;
+        System.arraycopy(src, first2, dst, to, last2 - first2 + 1);
+    }
+
+    /** Sort list[first..last] with insertion sort. Fast for short or nearly sorted ranges */
+    public static void insertionSort(int [] list, int first, int last){
+        for (int i = first + 1; i <= last; i++){
+            int current = list[i];
+            int j = i - 1;
+            // shift the larger elements one place to the right
+            while (j >= first && list[j] > current){
+                list[j + 1] = list[j];
+                j--;
+            }
+            list[j + 1] = current;
         }
     }
 
@@ -127,21 +169,122 @@ public class SortList {
         }
     }
 
+    // Ranges longer than this pick their pivot as a ninther (Tukey's median of
+    // three medians of three) rather than a plain median of three
+    private static final int NINTHER_THRESHOLD = 128;
+
     public static void quickSort(int[] list) {
         quickSort(list, 0, list.length - 1);
     }
 
+    /** Sort list[first..last] with introsort: quicksort with a median pivot and
+     * three-way partitioning, which switches to heapsort once the recursion is
+     * 2 log2 n deep, so the worst case is O(n log n) and the stack stays O(log n) */
     public static void quickSort(int[] list, int first, int last) {
-        if (last > first) {
-            int pivotIndex = partition(list, first, last);
-            quickSort(list, first, pivotIndex - 1);
-            quickSort(list, pivotIndex + 1, last);
+        if (last > first)
+            introSort(list, first, last, depthLimit(last - first + 1));
+    }
+
+    /** Return 2 floor(log2 n), the number of partitioning levels introsort allows */
+    private static int depthLimit(int n) {
+        return 2 * (31 - Integer.numberOfLeadingZeros(n));
+    }
+
+    private static void introSort(int[] list, int first, int last, int depthLimit) {
+        while (last - first >= INSERTION_SORT_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                // Too many bad pivots, finish this range in O(n log n)
+                heapSort(list, first, last);
+                return;
+            }
+
+            long bounds = partition3(list, first, last);
+            int lessEnd = lessEnd(bounds);
+            int greaterStart = greaterStart(bounds);
+
+            // Recurse into the smaller side and loop on the larger one, so
+            // at most log2 n calls are ever on the stack
+            if (lessEnd - first < last - greaterStart) {
+                introSort(list, first, lessEnd, depthLimit);
+                first = greaterStart;
+            } else {
+                introSort(list, greaterStart, last, depthLimit);
+                last = lessEnd;
+            }
+        }
+        insertionSort(list, first, last);
+    }
+
+    /** Partition list[first..last] three ways (Dijkstra's Dutch national flag)
+     * around a median pivot: elements less than the pivot, then all the
+     * elements equal to it, then the greater ones. The equal block is never
+     * looked at again, so a list of few distinct values sorts in about linear
+     * time. Returns the end of the less block and the start of the greater
+     * block packed into a long; unpack them with lessEnd and greaterStart */
+    private static long partition3(int[] list, int first, int last) {
+        int pivot = list[choosePivot(list, first, last)];
+        int less = first; // list[first..less-1] < pivot
+        int current = first; // list[less..current-1] == pivot
+        int greater = last; // list[greater+1..last] > pivot
+
+        while (current <= greater) {
+            int element = list[current];
+            if (element < pivot)
+                swap(list, less++, current++);
+            else if (element > pivot)
+                swap(list, current, greater--);
+            else
+                current++;
+        }
+        return (long) (less - 1) << 32 | (greater + 1);
+    }
+
+    private static int lessEnd(long bounds) {
+        return (int) (bounds >> 32);
+    }
+
+    private static int greaterStart(long bounds) {
+        return (int) bounds;
+    }
+
+    /** Return the index of a pivot for list[first..last]: the median of the
+     * first, middle and last elements, or a ninther for longer ranges */
+    private static int choosePivot(int[] list, int first, int last) {
+        int mid = (first + last) >>> 1;
+        if (last - first < NINTHER_THRESHOLD)
+            return medianOfThree(list, first, mid, last);
+
+        int step = (last - first) / 8;
+        return medianOfThree(list,
+                medianOfThree(list, first, first + step, first + 2 * step),
+                medianOfThree(list, mid - step, mid, mid + step),
+                medianOfThree(list, last - 2 * step, last - step, last));
+    }
+
+    /** Return whichever of the indexes a, b and c holds the median of their elements */
+    private static int medianOfThree(int[] list, int a, int b, int c) {
+        if (list[a] < list[b]) {
+            if (list[b] < list[c]) return b;
+            return list[a] < list[c] ? c : a;
+        } else {
+            if (list[a] < list[c]) return a;
+            return list[b] < list[c] ? c : b;
         }
     }
 
-    // Partition the array list[first..last]
+    private static void swap(int[] list, int i, int j) {
+        int temp = list[i];
+        list[i] = list[j];
+        list[j] = temp;
+    }
+
+    // Partition the array list[first..last] around the median of its first,
+    // middle and last elements. Returns the pivot's final index; no element
+    // before it is greater than the pivot and none after it is smaller
     public static int partition(int[] list, int first, int last) {
-        int pivot = list[first]; // Choose the first element as the pivot
+        // Move the median to the front, where the search below expects the pivot
+        swap(list, first, medianOfThree(list, first, (first + last) >>> 1, last));
+        int pivot = list[first];
         int low = first + 1; // Index for forward search
         int high = last; // Index for backward search
 
@@ -175,94 +318,216 @@ public class SortList {
         }
     }
 
-    public static void heapSort(int[] list) {
-        // Create a Heap of integers
-        Heap<Integer> heap = new Heap<Integer>();
+    // The parallel sorts sort ranges shorter than this sequentially; below it
+    // forking a task costs more than the work it hands to another thread
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    /** Merge sort list in parallel in the common fork-join pool */
+    public static void parallelMergeSort(int [] list){
+        parallelMergeSort(list, ForkJoinPool.commonPool());
+    }
 
-        // Add elements to the heap
-        for (int i = 0; i < list.length; i++)
-            heap.add(list[i]);
+    /** Merge sort list in parallel in pool. new ForkJoinPool(n) sorts with n threads */
+    public static void parallelMergeSort(int [] list, ForkJoinPool pool){
+        if (list.length < PARALLEL_THRESHOLD){
+            mergeSort(list);
+            return;
+        }
+        pool.invoke(new MergeSortTask(list.clone(), list, 0, list.length - 1));
+    }
 
-        // Remove elements from the heap
-        for (int i = list.length - 1; i >= 0; i--)
-            list[i] = heap.remove();
+    /** Quicksort list in parallel in the common fork-join pool */
+    public static void parallelQuickSort(int [] list){
+        parallelQuickSort(list, ForkJoinPool.commonPool());
     }
-    static class Heap<E extends Comparable<E>> {
-        private java.util.ArrayList<E> list = new java.util.ArrayList<E>();
 
-        // Create a default heap
-        public Heap() {
+    /** Quicksort list in parallel in pool. new ForkJoinPool(n) sorts with n threads */
+    public static void parallelQuickSort(int [] list, ForkJoinPool pool){
+        if (list.length < PARALLEL_THRESHOLD){
+            quickSort(list);
+            return;
         }
+        pool.invoke(new QuickSortTask(list, 0, list.length - 1, depthLimit(list.length)));
+    }
 
-        // Create a heap from an array of objects
-        public Heap(E[] objects) {
-            for (int i = 0; i < objects.length; i++)
-                add(objects[i]);
+    /** Sorts src[first..last] into dst[first..last] the same way as the
+     * sequential ping-pong mergeSort, but sorts the two halves in parallel
+     * and merges them in parallel */
+    private static final class MergeSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int [] src;
+        private final int [] dst;
+        private final int first;
+        private final int last;
+
+        MergeSortTask(int [] src, int [] dst, int first, int last){
+            this.src = src;
+            this.dst = dst;
+            this.first = first;
+            this.last = last;
         }
 
-        // Add a new object into the heap
-        public void add(E newObject) {
-            list.add(newObject); // Append to the heap
-            int currentIndex = list.size() - 1; // The index of the last node
-
-            while (currentIndex > 0) {
-                int parentIndex = (currentIndex - 1) / 2;
-                // Swap if the current object is greater than its parent
-                if (list.get(currentIndex).compareTo(list.get(parentIndex)) > 0) {
-                    E temp = list.get(currentIndex);
-                    list.set(currentIndex, list.get(parentIndex));
-                    list.set(parentIndex, temp);
-                } else
-                    break; // the tree is a heap now
-
-                currentIndex = parentIndex;
+        @Override
+        protected void compute(){
+            if (last - first < PARALLEL_THRESHOLD){
+                mergeSort(src, dst, first, last);
+                return;
+            }
+
+            int mid = (first + last) >>> 1;
+            invokeAll(new MergeSortTask(dst, src, first, mid), new MergeSortTask(dst, src, mid + 1, last));
+
+            if (src[mid] <= src[mid + 1]){
+                System.arraycopy(src, first, dst, first, last - first + 1);
+            } else {
+                new MergeTask(src, first, mid, mid + 1, last, dst, first).compute();
             }
         }
+    }
 
-        // Remove the root from the heap
-        public E remove() {
-            if (list.size() == 0)
-                return null;
-
-            E removedObject = list.get(0);
-            list.set(0, list.get(list.size() - 1));
-            list.remove(list.size() - 1);
-
-            int currentIndex = 0;
-            while (currentIndex < list.size()) {
-                int leftChildIndex = 2 * currentIndex + 1;
-                int rightChildIndex = 2 * currentIndex + 2;
-
-                // Find the maximum between two children
-                if (leftChildIndex >= list.size())
-                    break; // The tree is a heap
-                int maxIndex = leftChildIndex;
-                if (rightChildIndex < list.size()) {
-                    if (list.get(maxIndex).compareTo(list.get(rightChildIndex)) < 0) {
-                        maxIndex = rightChildIndex;
-                    }
-                }
+    /** Merges the sorted runs src[first1..last1] and src[first2..last2] into
+     * dst, starting at index to. The middle element of the longer run goes
+     * straight to its final place; a binary search finds where the other run
+     * splits around it, and the merges on either side run in parallel */
+    private static final class MergeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int [] src;
+        private final int first1;
+        private final int last1;
+        private final int first2;
+        private final int last2;
+        private final int [] dst;
+        private final int to;
+
+        MergeTask(int [] src, int first1, int last1, int first2, int last2, int [] dst, int to){
+            this.src = src;
+            this.first1 = first1;
+            this.last1 = last1;
+            this.first2 = first2;
+            this.last2 = last2;
+            this.dst = dst;
+            this.to = to;
+        }
 
-                // Swap if the current node is less than the maximum
-                if (list.get(currentIndex).compareTo(list.get(maxIndex)) < 0) {
-                    E temp = list.get(maxIndex);
-                    list.set(maxIndex, list.get(currentIndex));
-                    list.set(currentIndex, temp);
-                    currentIndex = maxIndex;
-                } else
-                    break; // The tree is a heap
+        @Override
+        protected void compute(){
+            int length1 = last1 - first1 + 1;
+            int length2 = last2 - first2 + 1;
+            if (length1 + length2 < PARALLEL_THRESHOLD){
+                merge(src, first1, last1, first2, last2, dst, to);
+                return;
             }
 
-            return removedObject;
+            // Equal elements of run 1 stay ahead of those of run 2
+            int mid1, mid2, pivotIndex;
+            if (length1 >= length2){
+                mid1 = (first1 + last1) >>> 1;
+                mid2 = lowerBound(src, first2, last2, src[mid1]);
+                pivotIndex = to + (mid1 - first1) + (mid2 - first2);
+                dst[pivotIndex] = src[mid1++];
+            } else {
+                mid2 = (first2 + last2) >>> 1;
+                mid1 = upperBound(src, first1, last1, src[mid2]);
+                pivotIndex = to + (mid1 - first1) + (mid2 - first2);
+                dst[pivotIndex] = src[mid2++];
+            }
+            invokeAll(new MergeTask(src, first1, mid1 - 1, first2, mid2 - 1, dst, to),
+                    new MergeTask(src, mid1, last1, mid2, last2, dst, pivotIndex + 1));
         }
+    }
+
+    /** Return the first index in list[first..last] whose element is at least key, or last + 1 */
+    private static int lowerBound(int [] list, int first, int last, int key){
+        int low = first;
+        int high = last + 1;
+        while (low < high){
+            int mid = (low + high) >>> 1;
+            if (list[mid] < key){
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Return the first index in list[first..last] whose element is greater than key, or last + 1 */
+    private static int upperBound(int [] list, int first, int last, int key){
+        int low = first;
+        int high = last + 1;
+        while (low < high){
+            int mid = (low + high) >>> 1;
+            if (list[mid] <= key){
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Introsorts list[first..last], sorting the two sides of each partition in parallel */
+    private static final class QuickSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int [] list;
+        private final int first;
+        private final int last;
+        private final int depthLimit;
+
+        QuickSortTask(int [] list, int first, int last, int depthLimit){
+            this.list = list;
+            this.first = first;
+            this.last = last;
+            this.depthLimit = depthLimit;
+        }
+
+        @Override
+        protected void compute(){
+            if (last - first < PARALLEL_THRESHOLD){
+                if (last > first){
+                    introSort(list, first, last, depthLimit);
+                }
+                return;
+            }
+            if (depthLimit == 0){
+                heapSort(list, first, last);
+                return;
+            }
+
+            long bounds = partition3(list, first, last);
+            invokeAll(new QuickSortTask(list, first, lessEnd(bounds), depthLimit - 1),
+                    new QuickSortTask(list, greaterStart(bounds), last, depthLimit - 1));
+        }
+    }
+
+    public static void heapSort(int[] list) {
+        if (list.length > 1)
+            heapSort(list, 0, list.length - 1);
+    }
 
-        // Get the number of nodes in the tree
-        public int getSize() {
-            return list.size();
+    /** Sort list[first..last] in place with heapsort, using the range as a
+     * max-heap whose root is list[first]. No element is boxed and no extra
+     * memory is used */
+    public static void heapSort(int[] list, int first, int last) {
+        int size = last - first + 1;
+        IntHeap.heapify(list, first, size);
+
+        // Move the largest remaining element behind the heap, which shrinks by one
+        for (int end = size - 1; end > 0; end--) {
+            int element = list[first + end];
+            list[first + end] = list[first];
+            // element came from the bottom of the heap, so it almost always
+            // ends up near the bottom again. Floyd's trick: move the hole down
+            // to a leaf without comparing it with element, then sift element
+            // up from there; that saves about half the comparisons
+            IntHeap.siftUp(list, first, IntHeap.siftHoleToLeaf(list, first, end), element);
         }
     }
 
-    static void radixSort(int[] list, int maxOrder) {
+    public static void radixSort(int[] list, int maxOrder) {
         for (int order = 1; order < maxOrder; order *= 10) {
             //@SuppressWarnings("unchecked")
             ArrayList<Integer>[] bucket = new ArrayList[10];
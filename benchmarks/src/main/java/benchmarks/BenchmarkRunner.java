@@ -0,0 +1,48 @@
+/* Entry point of benchmarks.jar. It accepts the usual JMH command line
+ * (a benchmark regex, -p size=1000, -f 1 and so on) and adds two defaults:
+ * the GC profiler, which reports the allocation rate of every benchmark
+ * (gc.alloc.rate.norm is bytes per operation), and JSON results written to
+ * jmh-result.json, so two runs can be compared with any JMH result viewer
+ * or a short script.
+ *
+ * Examples:
+ *   java -jar target/benchmarks.jar                         everything
+ *   java -jar target/benchmarks.jar SortBenchmark -p size=100000
+ *   java -jar target/benchmarks.jar -rff before.json MapBenchmark.getHit
+ */
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkRunner {
+
+    // Where results go unless -rff says otherwise
+    private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        if (commandLine.shouldList()) {
+            new Runner(commandLine).list();
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class);
+        if (!commandLine.getResultFormat().hasValue())
+            options.resultFormat(ResultFormatType.JSON);
+        if (!commandLine.getResult().hasValue())
+            options.result(DEFAULT_RESULT_FILE);
+
+        new Runner(options.build()).run();
+    }
+}
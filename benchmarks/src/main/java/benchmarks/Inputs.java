@@ -0,0 +1,92 @@
+/* Input data shared by the benchmarks. Every generator uses a fixed seed, so
+ * two runs (or two versions of the code) are measured on exactly the same
+ * data.
+ */
+package benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+
+final class Inputs {
+
+    // Values are in [0, MAX_VALUE). A power of 10 so radixSort covers every digit
+    static final int MAX_VALUE = 1000000;
+
+    // Number of distinct values in the "few_unique" distribution
+    private static final int FEW_UNIQUE_VALUES = 16;
+
+    private static final long SEED = 42;
+
+    private Inputs() {
+    }
+
+    /** Return size ints in [0, MAX_VALUE) arranged according to distribution:
+     * random, sorted, reversed or few_unique */
+    static int[] ints(String distribution, int size) {
+        Random random = new Random(SEED);
+        int[] list = new int[size];
+        switch (distribution) {
+            case "random":
+                for (int i = 0; i < size; i++)
+                    list[i] = random.nextInt(MAX_VALUE);
+                break;
+            case "sorted":
+                list = ints("random", size);
+                Arrays.sort(list);
+                break;
+            case "reversed":
+                list = ints("sorted", size);
+                for (int i = 0, j = size - 1; i < j; i++, j--) {
+                    int temp = list[i];
+                    list[i] = list[j];
+                    list[j] = temp;
+                }
+                break;
+            case "few_unique":
+                for (int i = 0; i < size; i++)
+                    list[i] = random.nextInt(FEW_UNIQUE_VALUES) * (MAX_VALUE / FEW_UNIQUE_VALUES);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        }
+        return list;
+    }
+
+    /** Return size distinct even keys, either ascending ("sorted") or shuffled ("random").
+     * Odd numbers are never keys, so they can be used as misses */
+    static Integer[] keys(String order, int size) {
+        Integer[] keys = new Integer[size];
+        for (int i = 0; i < size; i++)
+            keys[i] = 2 * i;
+
+        switch (order) {
+            case "sorted":
+                break;
+            case "random":
+                shuffle(keys, new Random(SEED));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown order: " + order);
+        }
+        return keys;
+    }
+
+    /** Return size distinct odd keys in random order, none of which is in keys(...) */
+    static Integer[] missingKeys(int size) {
+        Integer[] keys = new Integer[size];
+        for (int i = 0; i < size; i++)
+            keys[i] = 2 * i + 1;
+        shuffle(keys, new Random(SEED + 1));
+        return keys;
+    }
+
+    /** Fisher-Yates shuffle */
+    private static void shuffle(Integer[] keys, Random random) {
+        for (int i = keys.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Integer temp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = temp;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/* Benchmarks the lists in the mylinkedlist package, with java.util.LinkedList
+ * and java.util.ArrayList as baselines. The list is filled once per trial.
+ * addLastRemoveFirst uses the list as a queue and keeps its size constant,
+ * getMiddle reads the element at size / 2, iterate walks the whole list.
+ */
+package benchmarks;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mylinkedlist.LinkedList;
+import mylinkedlist.TwoWayLinkedList;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ListBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    @Param({"LinkedList", "TwoWayLinkedList", "java.util.LinkedList", "java.util.ArrayList"})
+    private String impl;
+
+    private ListOps list;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list = ListOps.create(impl);
+        for (Integer element: Inputs.keys("random", size))
+            list.addLast(element);
+    }
+
+    @Benchmark
+    public Integer addLastRemoveFirst() {
+        Integer element = list.removeFirst();
+        list.addLast(element);
+        return element;
+    }
+
+    @Benchmark
+    public Integer getMiddle() {
+        return list.get(size / 2);
+    }
+
+    @Benchmark
+    public long iterate() {
+        long sum = 0;
+        Iterator<Integer> iterator = list.iterator();
+        while (iterator.hasNext())
+            sum += iterator.next();
+        return sum;
+    }
+
+    /** The few list operations the benchmarks need, over any of the lists */
+    abstract static class ListOps {
+        abstract void addLast(Integer element);
+
+        abstract Integer removeFirst();
+
+        abstract Integer get(int index);
+
+        abstract Iterator<Integer> iterator();
+
+        static ListOps create(String impl) {
+            switch (impl) {
+                case "LinkedList":
+                    return new ListOps() {
+                        private final LinkedList<Integer> list = new LinkedList<>();
+                        void addLast(Integer element) { list.addLast(element); }
+                        Integer removeFirst() { return list.removeFirst(); }
+                        Integer get(int index) { return list.get(index); }
+                        Iterator<Integer> iterator() { return list.iterator(); }
+                    };
+                case "TwoWayLinkedList":
+                    return new ListOps() {
+                        private final TwoWayLinkedList<Integer> list = new TwoWayLinkedList<>();
+                        void addLast(Integer element) { list.addLast(element); }
+                        Integer removeFirst() { return list.removeFirst(); }
+                        Integer get(int index) { return list.get(index); }
+                        Iterator<Integer> iterator() { return list.iterator(); }
+                    };
+                case "java.util.LinkedList":
+                    return new ListOps() {
+                        private final java.util.LinkedList<Integer> list = new java.util.LinkedList<>();
+                        void addLast(Integer element) { list.addLast(element); }
+                        Integer removeFirst() { return list.removeFirst(); }
+                        Integer get(int index) { return list.get(index); }
+                        Iterator<Integer> iterator() { return list.iterator(); }
+                    };
+                case "java.util.ArrayList":
+                    return new ListOps() {
+                        private final java.util.ArrayList<Integer> list = new java.util.ArrayList<>();
+                        void addLast(Integer element) { list.add(element); }
+                        Integer removeFirst() { return list.remove(0); }
+                        Integer get(int index) { return list.get(index); }
+                        Iterator<Integer> iterator() { return list.iterator(); }
+                    };
+                default:
+                    throw new IllegalArgumentException("Unknown list: " + impl);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/* Benchmarks lookups and updates on the maps in the hashmap package, with
+ * java.util.HashMap as a baseline. The map is filled once per trial with
+ * size keys; every operation then works on one key, cycling through the
+ * keys in a shuffled order so that the caches see a realistic access
+ * pattern. putRemove adds and removes a key that is not in the map, so the
+ * size stays the same from one operation to the next.
+ */
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hashmap.ConcurrentHashMap;
+import hashmap.HashMap;
+import hashmap.IntIntMap;
+import hashmap.LinearProbingHashMap;
+import hashmap.OffHeapHashMap;
+import hashmap.Serializer;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class MapBenchmark {
+
+    @Param({"1000", "1000000"})
+    private int size;
+
+    @Param({"HashMap", "LinearProbingHashMap", "ConcurrentHashMap", "OffHeapHashMap", "IntIntMap",
+            "java.util.HashMap"})
+    private String impl;
+
+    private MapOps map;
+    private Integer[] keys;
+    private Integer[] missingKeys;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = Inputs.keys("random", size);
+        missingKeys = Inputs.missingKeys(size);
+        map = MapOps.create(impl);
+        for (Integer key: keys)
+            map.put(key, key);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        map.close();
+    }
+
+    /** Return the index of the key for this operation */
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == size ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public Integer getHit() {
+        return map.get(keys[nextIndex()]);
+    }
+
+    @Benchmark
+    public Integer getMiss() {
+        return map.get(missingKeys[nextIndex()]);
+    }
+
+    @Benchmark
+    public void putRemove() {
+        Integer key = missingKeys[nextIndex()];
+        map.put(key, key);
+        map.remove(key);
+    }
+
+    /** The few map operations the benchmarks need, over any of the maps */
+    abstract static class MapOps implements AutoCloseable {
+        abstract Integer get(Integer key);
+
+        abstract void put(Integer key, Integer value);
+
+        abstract void remove(Integer key);
+
+        @Override
+        public void close() throws Exception {
+        }
+
+        static MapOps create(String impl) {
+            switch (impl) {
+                case "HashMap":
+                    return new MapOps() {
+                        private final HashMap<Integer, Integer> map = new HashMap<>();
+                        Integer get(Integer key) { return map.get(key); }
+                        void put(Integer key, Integer value) { map.put(key, value); }
+                        void remove(Integer key) { map.remove(key); }
+                    };
+                case "LinearProbingHashMap":
+                    return new MapOps() {
+                        private final LinearProbingHashMap<Integer, Integer> map = new LinearProbingHashMap<>();
+                        Integer get(Integer key) { return map.get(key); }
+                        void put(Integer key, Integer value) { map.put(key, value); }
+                        void remove(Integer key) { map.remove(key); }
+                    };
+                case "ConcurrentHashMap":
+                    return new MapOps() {
+                        private final ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>();
+                        Integer get(Integer key) { return map.get(key); }
+                        void put(Integer key, Integer value) { map.put(key, value); }
+                        void remove(Integer key) { map.remove(key); }
+                    };
+                case "OffHeapHashMap":
+                    return new MapOps() {
+                        private final OffHeapHashMap<Integer, Integer> map =
+                                new OffHeapHashMap<>(Serializer.INT, Serializer.INT);
+                        Integer get(Integer key) { return map.get(key); }
+                        void put(Integer key, Integer value) { map.put(key, value); }
+                        void remove(Integer key) { map.remove(key); }
+                        @Override
+                        public void close() { map.close(); }
+                    };
+                case "IntIntMap":
+                    return new MapOps() {
+                        private final IntIntMap map = new IntIntMap();
+                        Integer get(Integer key) { return map.get(key); }
+                        void put(Integer key, Integer value) { map.put(key, value); }
+                        void remove(Integer key) { map.remove(key); }
+                    };
+                case "java.util.HashMap":
+                    return new MapOps() {
+                        private final java.util.HashMap<Integer, Integer> map = new java.util.HashMap<>();
+                        Integer get(Integer key) { return map.get(key); }
+                        void put(Integer key, Integer value) { map.put(key, value); }
+                        void remove(Integer key) { map.remove(key); }
+                    };
+                default:
+                    throw new IllegalArgumentException("Unknown map: " + impl);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/* Selection sort is O(n^2), so it gets its own benchmark with smaller sizes
+ * than SortBenchmark; at a million elements one operation takes minutes.
+ */
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sortlist.SortList;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class SelectionSortBenchmark {
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    @Param({"random", "sorted", "reversed", "few_unique"})
+    private String distribution;
+
+    private int[] input;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        input = Inputs.ints(distribution, size);
+    }
+
+    @Benchmark
+    public int[] selectionSort() {
+        int[] list = input.clone();
+        SortList.selectionSort(list);
+        return list;
+    }
+}
@@ -0,0 +1,110 @@
+/* Benchmarks every O(n log n) and linear-time sort in SortList against
+ * Arrays.sort, for several sizes and input distributions. Each operation
+ * sorts a fresh copy of the same input; copyOnly measures that copy alone
+ * so it can be subtracted. The parallel sorts run in the common fork-join
+ * pool and are compared with Arrays.parallelSort; pass
+ * -jvmArgsAppend -Djava.util.concurrent.ForkJoinPool.common.parallelism=N
+ * to see how they scale with the number of threads.
+ */
+package benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sortlist.SortList;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class SortBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param({"random", "sorted", "reversed", "few_unique"})
+    private String distribution;
+
+    private int[] input;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        input = Inputs.ints(distribution, size);
+    }
+
+    @Benchmark
+    public int[] copyOnly() {
+        return input.clone();
+    }
+
+    @Benchmark
+    public int[] mergeSort() {
+        int[] list = input.clone();
+        SortList.mergeSort(list);
+        return list;
+    }
+
+    @Benchmark
+    public int[] quickSort() {
+        int[] list = input.clone();
+        SortList.quickSort(list);
+        return list;
+    }
+
+    @Benchmark
+    public int[] parallelMergeSort() {
+        int[] list = input.clone();
+        SortList.parallelMergeSort(list);
+        return list;
+    }
+
+    @Benchmark
+    public int[] parallelQuickSort() {
+        int[] list = input.clone();
+        SortList.parallelQuickSort(list);
+        return list;
+    }
+
+    @Benchmark
+    public int[] heapSort() {
+        int[] list = input.clone();
+        SortList.heapSort(list);
+        return list;
+    }
+
+    @Benchmark
+    public int[] radixSort() {
+        int[] list = input.clone();
+        SortList.radixSort(list, Inputs.MAX_VALUE);
+        return list;
+    }
+
+    @Benchmark
+    public int[] jdkSort() {
+        int[] list = input.clone();
+        Arrays.sort(list);
+        return list;
+    }
+
+    @Benchmark
+    public int[] jdkParallelSort() {
+        int[] list = input.clone();
+        Arrays.parallelSort(list);
+        return list;
+    }
+}
@@ -0,0 +1,226 @@
+/* Benchmarks the ordered sets in the BinarySearchTree package, with
+ * java.util.TreeSet as a baseline. The set is filled once per trial by
+ * inserting size keys one at a time, either shuffled or ascending; the
+ * ascending order is the worst case for the unbalanced BST. search and
+ * insertDelete work on one key per operation, iterate walks the whole set.
+ * EytzingerTree and LongEytzingerTree are the read-only arrays returned by
+ * BST.freeze() and freeze(ToLongFunction) of an AVLTree filled the same way.
+ * They cannot change, so insertDelete fails for them; leave it out with
+ * -e insertDelete.
+ */
+package benchmarks;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import BinarySearchTree.AVLTree;
+import BinarySearchTree.BPlusTree;
+import BinarySearchTree.BST;
+import BinarySearchTree.EytzingerTree;
+import BinarySearchTree.LongEytzingerTree;
+import BinarySearchTree.LockFreeSkipList;
+import BinarySearchTree.PersistentBST;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class TreeBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    @Param({"random", "sorted"})
+    private String order;
+
+    @Param({"BST", "AVLTree", "BPlusTree", "LockFreeSkipList", "PersistentBST",
+            "EytzingerTree", "LongEytzingerTree", "java.util.TreeSet"})
+    private String impl;
+
+    private TreeOps tree;
+    private Integer[] keys;
+    private Integer[] missingKeys;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Integer[] insertionOrder = Inputs.keys(order, size);
+        tree = TreeOps.create(impl);
+        for (Integer key: insertionOrder)
+            tree.insert(key);
+        tree = tree.filled();
+
+        keys = Inputs.keys("random", size); // Look the keys up in random order
+        missingKeys = Inputs.missingKeys(size);
+    }
+
+    /** Return the index of the key for this operation */
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == size ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public boolean search() {
+        return tree.search(keys[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean insertDelete() {
+        Integer key = missingKeys[nextIndex()];
+        return tree.insert(key) & tree.delete(key);
+    }
+
+    @Benchmark
+    public long iterate() {
+        long sum = 0;
+        Iterator<Integer> iterator = tree.iterator();
+        while (iterator.hasNext())
+            sum += iterator.next();
+        return sum;
+    }
+
+    /** The few set operations the benchmarks need, over any of the sets */
+    abstract static class TreeOps {
+        abstract boolean search(Integer key);
+
+        abstract boolean insert(Integer key);
+
+        abstract boolean delete(Integer key);
+
+        abstract Iterator<Integer> iterator();
+
+        /** Return the operations to benchmark once every key is inserted.
+         * The frozen trees are only built at this point */
+        TreeOps filled() {
+            return this;
+        }
+
+        static TreeOps create(String impl) {
+            switch (impl) {
+                case "BST":
+                    return of(new BST<Integer>());
+                case "AVLTree":
+                    return of(new AVLTree<Integer>());
+                case "BPlusTree":
+                    return new TreeOps() {
+                        private final BPlusTree<Integer> tree = new BPlusTree<>();
+                        boolean search(Integer key) { return tree.search(key); }
+                        boolean insert(Integer key) { return tree.insert(key); }
+                        boolean delete(Integer key) { return tree.delete(key); }
+                        Iterator<Integer> iterator() { return tree.iterator(); }
+                    };
+                case "LockFreeSkipList":
+                    return new TreeOps() {
+                        private final LockFreeSkipList<Integer> tree = new LockFreeSkipList<>();
+                        boolean search(Integer key) { return tree.search(key); }
+                        boolean insert(Integer key) { return tree.insert(key); }
+                        boolean delete(Integer key) { return tree.delete(key); }
+                        Iterator<Integer> iterator() { return tree.iterator(); }
+                    };
+                case "PersistentBST":
+                    return new TreeOps() {
+                        private PersistentBST<Integer> tree = new PersistentBST<>();
+                        boolean search(Integer key) { return tree.search(key); }
+                        boolean insert(Integer key) {
+                            PersistentBST<Integer> newTree = tree.insert(key);
+                            boolean changed = newTree != tree;
+                            tree = newTree;
+                            return changed;
+                        }
+                        boolean delete(Integer key) {
+                            PersistentBST<Integer> newTree = tree.delete(key);
+                            boolean changed = newTree != tree;
+                            tree = newTree;
+                            return changed;
+                        }
+                        Iterator<Integer> iterator() { return tree.iterator(); }
+                    };
+                case "EytzingerTree":
+                    return new Unfrozen(source -> {
+                        EytzingerTree<Integer> tree = source.freeze();
+                        return new ReadOnlyOps() {
+                            boolean search(Integer key) { return tree.search(key); }
+                            Iterator<Integer> iterator() { return tree.iterator(); }
+                        };
+                    });
+                case "LongEytzingerTree":
+                    return new Unfrozen(source -> {
+                        LongEytzingerTree<Integer> tree = source.freeze(Integer::longValue);
+                        return new ReadOnlyOps() {
+                            boolean search(Integer key) { return tree.search(key.longValue()); }
+                            Iterator<Integer> iterator() { return tree.iterator(); }
+                        };
+                    });
+                case "java.util.TreeSet":
+                    return new TreeOps() {
+                        private final java.util.TreeSet<Integer> tree = new java.util.TreeSet<>();
+                        boolean search(Integer key) { return tree.contains(key); }
+                        boolean insert(Integer key) { return tree.add(key); }
+                        boolean delete(Integer key) { return tree.remove(key); }
+                        Iterator<Integer> iterator() { return tree.iterator(); }
+                    };
+                default:
+                    throw new IllegalArgumentException("Unknown tree: " + impl);
+            }
+        }
+
+        /** Operations over a BST or one of its subclasses */
+        private static TreeOps of(BST<Integer> tree) {
+            return new TreeOps() {
+                boolean search(Integer key) { return tree.search(key); }
+                boolean insert(Integer key) { return tree.insert(key); }
+                boolean delete(Integer key) { return tree.delete(key); }
+                Iterator<Integer> iterator() { return tree.iterator(); }
+            };
+        }
+    }
+
+    /** Collects the keys of a frozen tree in an AVLTree, so sorted insertion
+     * stays cheap, and hands the filled tree to freeze */
+    static final class Unfrozen extends TreeOps {
+        private final AVLTree<Integer> source = new AVLTree<>();
+        private final java.util.function.Function<AVLTree<Integer>, TreeOps> freeze;
+
+        Unfrozen(java.util.function.Function<AVLTree<Integer>, TreeOps> freeze) {
+            this.freeze = freeze;
+        }
+
+        @Override
+        TreeOps filled() {
+            return freeze.apply(source);
+        }
+
+        boolean search(Integer key) { return source.search(key); }
+        boolean insert(Integer key) { return source.insert(key); }
+        boolean delete(Integer key) { return source.delete(key); }
+        Iterator<Integer> iterator() { return source.iterator(); }
+    }
+
+    /** Operations over a frozen tree, which cannot change */
+    abstract static class ReadOnlyOps extends TreeOps {
+        boolean insert(Integer key) {
+            throw new UnsupportedOperationException("A frozen tree is read-only");
+        }
+
+        boolean delete(Integer key) {
+            throw new UnsupportedOperationException("A frozen tree is read-only");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/* Multi-threaded tests for ConcurrentHashMap. The map starts at the smallest
+ * capacity, so the threads keep running into bins that are locked, moved
+ * (forwarding nodes) or part of a resize they have to help with. Afterwards
+ * size() and the contents must match exactly what the threads did.
+ */
+package hashmap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentHashMapTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+    private static final int THREADS = 8;
+    private static final int KEYS_PER_THREAD = 20000;
+    private static final int SHARED_KEYS = 5000;
+    private static final int STABLE_KEYS = 1000;
+
+    @Test
+    void concurrentPutRemoveGet() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>(1);
+
+            // Keys that nobody changes; every reader must find them through all the resizes
+            for (int i = 0; i < STABLE_KEYS; i++)
+                map.put(-1 - i, i);
+
+            AtomicIntegerArray sharedWinners = new AtomicIntegerArray(SHARED_KEYS);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                tasks.add(() -> {
+                    start.await();
+                    int base = (thread + 1) * 1_000_000;
+                    for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                        int key = base + i;
+                        map.put(key, i);
+                        assertEquals(i, map.get(key), "own write");
+                        if (i % 3 == 0) {
+                            map.remove(key);
+                            assertNull(map.get(key), "own remove");
+                        }
+
+                        // Every thread races for the same shared keys; exactly one must win each
+                        int shared = (i + thread * 7) % SHARED_KEYS;
+                        if (map.putIfAbsent(shared, thread) == null)
+                            sharedWinners.incrementAndGet(shared);
+
+                        int stable = i % STABLE_KEYS;
+                        assertEquals(stable, map.get(-1 - stable), "stable key");
+                    }
+                    return null;
+                });
+            }
+
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+            try {
+                List<Future<Void>> futures = new ArrayList<>();
+                for (Callable<Void> task : tasks)
+                    futures.add(pool.submit(task));
+                start.countDown();
+                for (Future<Void> future : futures)
+                    future.get(); // Rethrows an assertion that failed in a worker
+            } finally {
+                pool.shutdownNow();
+                pool.awaitTermination(10, TimeUnit.SECONDS);
+            }
+
+            int kept = KEYS_PER_THREAD - (KEYS_PER_THREAD + 2) / 3;
+            assertEquals(STABLE_KEYS + SHARED_KEYS + THREADS * kept, map.size());
+            assertEquals(map.size(), map.keySet().size());
+
+            for (int s = 0; s < SHARED_KEYS; s++)
+                assertEquals(1, sharedWinners.get(s), "winners of shared key " + s);
+            for (int t = 0; t < THREADS; t++) {
+                int base = (t + 1) * 1_000_000;
+                for (int i = 0; i < KEYS_PER_THREAD; i++)
+                    assertEquals(i % 3 == 0 ? null : Integer.valueOf(i), map.get(base + i));
+            }
+            for (int i = 0; i < STABLE_KEYS; i++)
+                assertEquals(i, map.get(-1 - i));
+        });
+    }
+
+    @Test
+    void concurrentRemoveOfSameKeys() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>(1);
+            int keys = 50000;
+            for (int i = 0; i < keys; i++)
+                map.put(i, i);
+
+            // All threads remove every key; the count must drop once per key, not once per thread
+            Thread[] threads = new Thread[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < keys; i++)
+                        map.remove(i);
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads)
+                thread.join();
+
+            assertEquals(0, map.size());
+            assertEquals(0, map.keySet().size());
+        });
+    }
+}
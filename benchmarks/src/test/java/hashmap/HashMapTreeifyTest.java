@@ -0,0 +1,170 @@
+/* Tests for the tree bins of HashMap. Once a bucket holds TREEIFY_THRESHOLD
+ * entries it becomes an AVL tree ordered by hash, then by compareTo for keys
+ * of one self-comparable class, then by a fixed tie-break, and it turns back
+ * into a chain when it shrinks. The keys here all share one hash code, so
+ * every order-dependent path of the tree is taken, and the map is checked
+ * against java.util.HashMap after each operation.
+ */
+package hashmap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.function.IntFunction;
+
+import org.junit.jupiter.api.Test;
+
+class HashMapTreeifyTest {
+
+    /** A key with a fixed hash code that is not Comparable */
+    private static class PlainKey {
+        final int id;
+
+        PlainKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o != null && o.getClass() == getClass() && ((PlainKey) o).id == id;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + id;
+        }
+    }
+
+    /** A key with a fixed hash code that is Comparable to its own class */
+    private static final class ComparableKey extends PlainKey implements Comparable<ComparableKey> {
+        ComparableKey(int id) {
+            super(id);
+        }
+
+        @Override
+        public int compareTo(ComparableKey other) {
+            return Integer.compare(id, other.id);
+        }
+    }
+
+    /** A second non-Comparable class, so one bucket can mix key classes */
+    private static final class OtherKey extends PlainKey {
+        OtherKey(int id) {
+            super(id);
+        }
+    }
+
+    /** A colliding key whose compareTo fails */
+    private static final class FailingKey extends PlainKey implements Comparable<FailingKey> {
+        FailingKey(int id) {
+            super(id);
+        }
+
+        @Override
+        public int compareTo(FailingKey other) {
+            throw new ClassCastException("thrown by compareTo");
+        }
+    }
+
+    @Test
+    void comparableKeys() {
+        checkAgainstJavaUtil(ComparableKey::new);
+    }
+
+    @Test
+    void nonComparableKeys() {
+        checkAgainstJavaUtil(PlainKey::new);
+    }
+
+    @Test
+    void mixedKeyClasses() {
+        checkAgainstJavaUtil(id -> {
+            switch (id % 3) {
+                case 0: return new ComparableKey(id);
+                case 1: return new PlainKey(id);
+                default: return new OtherKey(id);
+            }
+        });
+    }
+
+    @Test
+    void bucketTurnsIntoTreeAndBack() throws Exception {
+        HashMap<PlainKey, Integer> map = new HashMap<>(64);
+        for (int i = 0; i < 20; i++)
+            map.put(new ComparableKey(i), i);
+        assertTrue(hasTreeBin(map));
+
+        for (int i = 0; i < 16; i++)
+            map.remove(new ComparableKey(i));
+        assertFalse(hasTreeBin(map));
+        for (int i = 16; i < 20; i++)
+            assertEquals(i, map.get(new ComparableKey(i)));
+    }
+
+    @Test
+    void exceptionFromCompareToIsNotSwallowed() {
+        HashMap<PlainKey, Integer> map = new HashMap<>(64);
+        ClassCastException thrown = assertThrows(ClassCastException.class, () -> {
+            for (int i = 0; i < 20; i++)
+                map.put(new FailingKey(i), i);
+        });
+        assertEquals("thrown by compareTo", thrown.getMessage());
+    }
+
+    @Test
+    void selfComparableCheck() {
+        assertTrue(HashMap.TreeEntry.isSelfComparable(String.class));
+        assertTrue(HashMap.TreeEntry.isSelfComparable(Integer.class));
+        assertTrue(HashMap.TreeEntry.isSelfComparable(ComparableKey.class));
+        assertFalse(HashMap.TreeEntry.isSelfComparable(PlainKey.class));
+        assertFalse(HashMap.TreeEntry.isSelfComparable(java.sql.Timestamp.class)); // Comparable<Date> only via its superclass
+    }
+
+    /** Run random puts, removes and lookups on colliding keys made by newKey */
+    private static void checkAgainstJavaUtil(IntFunction<PlainKey> newKey) {
+        Random random = new Random(7);
+        HashMap<PlainKey, Integer> map = new HashMap<>(64);
+        java.util.HashMap<PlainKey, Integer> expected = new java.util.HashMap<>();
+
+        for (int i = 0; i < 5000; i++) {
+            // Drift the key range so the bucket keeps growing and shrinking through both thresholds
+            int range = 4 + (i / 500 % 2 == 0 ? i % 500 / 10 : 50 - i % 500 / 10);
+            PlainKey key = newKey.apply(random.nextInt(range));
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            }
+            else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+
+            PlainKey probe = newKey.apply(random.nextInt(range + 5));
+            assertEquals(expected.get(probe), map.get(probe), "get " + probe);
+            assertEquals(expected.size(), map.size());
+        }
+
+        assertEquals(expected.keySet(), map.keySet());
+        for (PlainKey key : expected.keySet())
+            assertEquals(expected.get(key), map.get(key));
+    }
+
+    /** Return true if some bucket of the map is a tree */
+    private static boolean hasTreeBin(HashMap<?, ?> map) throws Exception {
+        java.lang.reflect.Field field = HashMap.class.getDeclaredField("table");
+        field.setAccessible(true);
+        for (Object bucket : (Object[]) field.get(map)) {
+            if (bucket instanceof HashMap.TreeEntry)
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,188 @@
+/* Regression tests for LinearProbingHashMap. A probe only stops at an empty
+ * slot, so the table must never fill up completely; the first cases used to
+ * fill it and then loop forever looking up a key that is not there. The
+ * rest check the HashMap-style API against java.util.HashMap, including
+ * removal through the views while the removal shifts entries around.
+ */
+package hashmap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LinearProbingHashMapTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    /** A key whose hash code is fixed, so any number of keys can collide */
+    private static final class CollidingKey {
+        private final int id;
+
+        CollidingKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+        }
+    }
+
+    @Test
+    void missingKeyInCapacityOneMap() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            LinearProbingHashMap<Integer, Integer> map = new LinearProbingHashMap<>(1);
+            map.put(1, 1);
+            assertNull(map.get(2));
+            assertFalse(map.containsKey(2));
+            map.remove(2);
+            assertEquals(1, map.size());
+            assertEquals(1, map.get(1));
+        });
+    }
+
+    @Test
+    void missingKeyAtHighLoadFactor() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            LinearProbingHashMap<CollidingKey, Integer> map = new LinearProbingHashMap<>(4, 0.9f);
+            for (int i = 0; i < 4; i++)
+                map.put(new CollidingKey(i), i);
+            assertFalse(map.containsKey(new CollidingKey(99)));
+            assertNull(map.get(new CollidingKey(99)));
+            for (int i = 0; i < 4; i++)
+                assertEquals(i, map.get(new CollidingKey(i)));
+        });
+    }
+
+    @Test
+    void growingFromCapacityOne() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            LinearProbingHashMap<Integer, Integer> map = new LinearProbingHashMap<>(1, 0.99f);
+            for (int i = 0; i < 1000; i++) {
+                map.put(i, i);
+                assertFalse(map.containsKey(-1 - i));
+            }
+            for (int i = 0; i < 1000; i++)
+                assertTrue(map.containsKey(i));
+            assertEquals(1000, map.size());
+        });
+    }
+
+    @Test
+    void matchesJavaUtilHashMap() {
+        Random random = new Random(1);
+        LinearProbingHashMap<Integer, Integer> map = new LinearProbingHashMap<>();
+        java.util.HashMap<Integer, Integer> expected = new java.util.HashMap<>();
+
+        for (int i = 0; i < 20000; i++) {
+            Integer key = random.nextInt(300);
+            Integer value = random.nextInt(5);
+            switch (random.nextInt(7)) {
+                case 0:
+                    map.put(key, value);
+                    expected.put(key, value);
+                    break;
+                case 1:
+                    assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+                    break;
+                case 2:
+                    assertEquals(expected.computeIfAbsent(key, k -> value), map.computeIfAbsent(key, k -> value));
+                    break;
+                case 3:
+                    assertEquals(expected.computeIfPresent(key, (k, v) -> v == 0 ? null : v - 1),
+                            map.computeIfPresent(key, (k, v) -> v == 0 ? null : v - 1));
+                    break;
+                case 4:
+                    assertEquals(expected.compute(key, (k, v) -> v == null ? value : null),
+                            map.compute(key, (k, v) -> v == null ? value : null));
+                    break;
+                case 5:
+                    assertEquals(expected.merge(key, value, (a, b) -> a + b > 6 ? null : a + b),
+                            map.merge(key, value, (a, b) -> a + b > 6 ? null : a + b));
+                    break;
+                default:
+                    map.remove(key);
+                    expected.remove(key);
+            }
+            assertEquals(expected.get(key), map.get(key));
+            assertEquals(expected.size(), map.size());
+        }
+
+        assertEquals(expected.keySet(), map.keySet());
+        java.util.Map<Integer, Integer> seen = new java.util.HashMap<>();
+        map.forEach(seen::put);
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void removeThroughIteratorVisitsEveryEntryOnce() {
+        // Colliding keys form one long probe run that wraps around the end of
+        // the table, so every removal shifts entries back across the walk
+        for (int removeEvery = 1; removeEvery <= 3; removeEvery++) {
+            LinearProbingHashMap<CollidingKey, Integer> map = new LinearProbingHashMap<>(64, 0.9f);
+            for (int i = 0; i < 50; i++)
+                map.put(new CollidingKey(i), i);
+
+            java.util.Set<Integer> visited = new java.util.HashSet<>();
+            java.util.Set<Integer> kept = new java.util.HashSet<>();
+            int count = 0;
+            for (Iterator<Integer> it = map.values().iterator(); it.hasNext(); count++) {
+                Integer value = it.next();
+                assertTrue(visited.add(value), "visited twice: " + value);
+                if (count % removeEvery == 0)
+                    it.remove();
+                else
+                    kept.add(value);
+            }
+
+            assertEquals(50, visited.size());
+            assertEquals(kept.size(), map.size());
+            for (int i = 0; i < 50; i++)
+                assertEquals(kept.contains(i), map.containsKey(new CollidingKey(i)));
+        }
+    }
+
+    @Test
+    void viewsAndCursorWriteThrough() {
+        LinearProbingHashMap<Integer, Integer> map = new LinearProbingHashMap<>();
+        for (int i = 0; i < 100; i++)
+            map.put(i, i);
+
+        assertTrue(map.keySet().remove(5));
+        assertFalse(map.keySet().contains(5));
+        assertTrue(map.entrySet().contains(new HashMap.Entry<>(6, 6)));
+        assertFalse(map.entrySet().contains(new HashMap.Entry<>(6, 7)));
+        assertTrue(map.entrySet().remove(new HashMap.Entry<>(6, 6)));
+        assertEquals(98, map.size());
+
+        for (LinearProbingHashMap<Integer, Integer>.Cursor c = map.cursor(); c.advance(); )
+            c.setValue(c.getValue() * 2);
+        assertEquals(20, map.get(10));
+        assertTrue(map.values().contains(198));
+        assertEquals(98, map.entrySet().stream().count());
+        assertEquals(Integer.valueOf(99 * 100 - 10 - 12), map.reduceValues(1, Integer::sum));
+        assertTrue(map.containsValue(1, 40));
+
+        Iterator<Integer> it = map.keySet().iterator();
+        it.next();
+        map.put(1000, 0);
+        assertThrows(java.util.ConcurrentModificationException.class, it::next);
+
+        map.values().clear();
+        assertTrue(map.isEmpty());
+    }
+}
@@ -0,0 +1,104 @@
+/* Regression tests for MappedHashMap: a failed write must leave the target
+ * file as it was, open must reject a header whose size does not fit the
+ * table, and one opened snapshot must serve concurrent readers.
+ */
+package hashmap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedHashMapTest {
+
+    // Byte offset of the size field in the file header
+    private static final int SIZE_OFFSET = 20;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void failedWriteKeepsTheOldFile() throws IOException {
+        Path file = directory.resolve("map.bin");
+        HashMap<Integer, String> map = new HashMap<>();
+        map.put(1, "ok");
+        MappedHashMap.write(map, file, Serializer.INT, Serializer.fixedString(4));
+        byte[] before = Files.readAllBytes(file);
+
+        map.put(2, "far too long for four bytes");
+        assertThrows(IllegalArgumentException.class,
+                () -> MappedHashMap.write(map, file, Serializer.INT, Serializer.fixedString(4)));
+
+        assertArrayEquals(before, Files.readAllBytes(file));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count(), "the temporary file was not deleted");
+        }
+    }
+
+    @Test
+    void openRejectsSizeThatDoesNotFitCapacity() throws IOException {
+        Path file = directory.resolve("map.bin");
+        HashMap<Integer, Integer> map = new HashMap<>();
+        for (int key = 0; key < 3; key++)
+            map.put(key, key);
+        MappedHashMap.write(map, file, Serializer.INT, Serializer.INT);
+
+        for (int size: new int[] {-1, 1 << 20}) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, size), SIZE_OFFSET);
+            }
+            assertThrows(IOException.class, () -> MappedHashMap.open(file, Serializer.INT, Serializer.INT));
+        }
+    }
+
+    @Test
+    void concurrentLookupsOnOneSnapshot() throws Exception {
+        Path file = directory.resolve("map.bin");
+        int size = 10000;
+        HashMap<Long, Long> map = new HashMap<>();
+        for (long key = 0; key < size; key++)
+            map.put(key, -key);
+        MappedHashMap.write(map, file, Serializer.LONG, Serializer.LONG);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (OffHeapHashMap<Long, Long> snapshot = MappedHashMap.open(file, Serializer.LONG, Serializer.LONG)) {
+            assertNull(snapshot.get((long) size));
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                long offset = thread;
+                results.add(executor.submit(() -> {
+                    int wrong = 0;
+                    for (int round = 0; round < 20; round++) {
+                        for (long i = 0; i < size; i++) {
+                            long key = (i * 7 + offset) % size;
+                            Long value = snapshot.get(key);
+                            if (value == null || value != -key)
+                                wrong++;
+                        }
+                    }
+                    return wrong;
+                }));
+            }
+            for (Future<Integer> result: results)
+                assertEquals(0, result.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/* Regression tests for OffHeapHashMap: a table that filled up completely
+ * made lookups of absent keys loop forever, concurrent readers used to
+ * share one scratch buffer for the key and could see each other's key, and
+ * a value the serializer rejected left a half-written entry behind.
+ */
+package hashmap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class OffHeapHashMapTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Test
+    void missingKeyInCapacityOneMap() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            try (OffHeapHashMap<Integer, Integer> map =
+                         new OffHeapHashMap<>(Serializer.INT, Serializer.INT, 1, 0.5f)) {
+                map.put(1, 1);
+                assertNull(map.get(2));
+                assertFalse(map.containsKey(2));
+                map.remove(2);
+                assertEquals(1, map.size());
+                assertEquals(1, map.get(1));
+            }
+        });
+    }
+
+    @Test
+    void missingKeyAtHighLoadFactor() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            try (OffHeapHashMap<Integer, Integer> map =
+                         new OffHeapHashMap<>(Serializer.INT, Serializer.INT, 4, 0.9f)) {
+                for (int key = 0; key < 4; key++)
+                    map.put(key, key);
+                assertFalse(map.containsKey(99));
+                for (int key = 0; key < 4; key++)
+                    assertEquals(key, map.get(key));
+            }
+        });
+    }
+
+    @Test
+    void rejectedValueOnInsertLeavesMapUnchanged() {
+        try (OffHeapHashMap<Integer, String> map =
+                     new OffHeapHashMap<>(Serializer.INT, Serializer.fixedString(4), 1, 0.5f)) {
+            map.put(1, "one");
+            assertThrows(IllegalArgumentException.class, () -> map.put(2, "way too long string"));
+
+            assertEquals(1, map.size());
+            assertFalse(map.containsKey(2));
+            assertNull(map.get(2));
+            assertEquals(java.util.Collections.singleton(1), map.keySet());
+            assertEquals("one", map.get(1));
+        }
+    }
+
+    @Test
+    void rejectedValueOnUpdateKeepsOldValue() {
+        try (OffHeapHashMap<Integer, String> map =
+                     new OffHeapHashMap<>(Serializer.INT, Serializer.fixedString(4))) {
+            map.put(1, "one");
+            assertThrows(IllegalArgumentException.class, () -> map.put(1, "way too long string"));
+
+            assertEquals(1, map.size());
+            assertEquals("one", map.get(1));
+        }
+    }
+
+    @Test
+    void concurrentReadersSeeTheirOwnKeys() throws Exception {
+        int size = 10000;
+        try (OffHeapHashMap<Long, Long> map = new OffHeapHashMap<>(Serializer.LONG, Serializer.LONG)) {
+            for (long key = 0; key < size; key++)
+                map.put(key, -key);
+
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<Integer>> results = new ArrayList<>();
+                for (int thread = 0; thread < 4; thread++) {
+                    long offset = thread;
+                    results.add(executor.submit(() -> {
+                        int wrong = 0;
+                        for (int round = 0; round < 20; round++) {
+                            for (long i = 0; i < size; i++) {
+                                long key = (i * 7 + offset) % size;
+                                Long value = map.get(key);
+                                if (value == null || value != -key)
+                                    wrong++;
+                            }
+                        }
+                        return wrong;
+                    }));
+                }
+                for (Future<Integer> result: results)
+                    assertEquals(0, result.get());
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
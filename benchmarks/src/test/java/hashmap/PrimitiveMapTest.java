@@ -0,0 +1,106 @@
+/* Regression tests shared by IntIntMap and LongObjectMap, which are the
+ * same linear-probing map with int and long keys. A probe only stops at an
+ * empty slot, so the table must never fill up completely; these cases used
+ * to fill it and then loop forever looking up a key that is not there.
+ */
+package hashmap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class PrimitiveMapTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    /** The operations under test, over either map */
+    interface IntKeyedMap {
+        void put(int key, int value);
+
+        boolean containsKey(int key);
+
+        int get(int key);
+
+        void remove(int key);
+
+        int size();
+    }
+
+    static Stream<IntKeyedMap> capacityOne() {
+        return Stream.of(intIntMap(new IntIntMap(1, 0.5f, -1)), longObjectMap(new LongObjectMap<>(1)));
+    }
+
+    static Stream<IntKeyedMap> highLoadFactor() {
+        return Stream.of(intIntMap(new IntIntMap(4, 0.9f, -1)), longObjectMap(new LongObjectMap<>(4, 0.9f)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("capacityOne")
+    void missingKeyInCapacityOneMap(IntKeyedMap map) {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            map.put(5, 50);
+            assertFalse(map.containsKey(7));
+            assertEquals(-1, map.get(7));
+            map.remove(7);
+            assertEquals(1, map.size());
+            assertEquals(50, map.get(5));
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource("highLoadFactor")
+    void missingKeyAtHighLoadFactor(IntKeyedMap map) {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            for (int key = 1; key <= 4; key++)
+                map.put(key, key * 10);
+            assertFalse(map.containsKey(99));
+            assertEquals(-1, map.get(99));
+            for (int key = 1; key <= 4; key++)
+                assertEquals(key * 10, map.get(key));
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource("capacityOne")
+    void growingFromCapacityOneWithKeyZero(IntKeyedMap map) {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            for (int key = 0; key < 1000; key++) {
+                map.put(key, key);
+                assertFalse(map.containsKey(-1 - key));
+            }
+            assertEquals(1000, map.size());
+            for (int key = 0; key < 1000; key++)
+                assertEquals(key, map.get(key));
+        });
+    }
+
+    /** The maps are created with -1 as their no-entry value */
+    private static IntKeyedMap intIntMap(IntIntMap map) {
+        return new IntKeyedMap() {
+            public void put(int key, int value) { map.put(key, value); }
+            public boolean containsKey(int key) { return map.containsKey(key); }
+            public int get(int key) { return map.get(key); }
+            public void remove(int key) { map.remove(key); }
+            public int size() { return map.size(); }
+            public String toString() { return "IntIntMap"; }
+        };
+    }
+
+    /** get returns -1 for a missing key */
+    private static IntKeyedMap longObjectMap(LongObjectMap<Integer> map) {
+        return new IntKeyedMap() {
+            public void put(int key, int value) { map.put(key, value); }
+            public boolean containsKey(int key) { return map.containsKey(key); }
+            public int get(int key) { return map.getOrDefault(key, -1); }
+            public void remove(int key) { map.remove(key); }
+            public int size() { return map.size(); }
+            public String toString() { return "LongObjectMap"; }
+        };
+    }
+}